@@ -0,0 +1,149 @@
+package com.github.eventsource.client.benchmarks;
+
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+import com.github.eventsource.client.impl.ConnectionHandler;
+import com.github.eventsource.client.impl.EventStreamParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses streams of {@link #EVENTS} events of different shapes. Scores are per event.
+ * Run with <code>-prof gc</code> to see the bytes allocated per event (<code>gc.alloc.rate.norm</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(EventStreamParserBenchmark.EVENTS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventStreamParserBenchmark {
+    static final int EVENTS = 1000;
+
+    // The size of a typical TCP segment, to exercise lines split between reads
+    private static final int SEGMENT_SIZE = 1460;
+
+    public enum Shape {
+        /** One short data line per event */
+        TINY,
+        /** 20 lines of 200 characters per event */
+        LARGE_MULTILINE,
+        /** Ten comment keepalives between short events */
+        COMMENT_HEAVY,
+        /** An id, retry and event field on every event */
+        ID_RETRY_HEAVY
+    }
+
+    @Param
+    public Shape shape;
+
+    private String stream;
+    private String[] lines;
+    private byte[] bytes;
+    private EventStreamParser parser;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        stream = stream(shape);
+        lines = stream.split("\n", -1);
+        bytes = stream.getBytes(Charset.forName("UTF-8"));
+        parser = new EventStreamParser("http://localhost/es", new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                blackhole.consume(message);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }, new ConnectionHandler() {
+            @Override
+            public void setReconnectionTimeMillis(long reconnectionTimeMillis) {
+                blackhole.consume(reconnectionTimeMillis);
+            }
+
+            @Override
+            public void setLastEventId(String lastEventId) {
+                blackhole.consume(lastEventId);
+            }
+        });
+    }
+
+    @Benchmark
+    public void line() {
+        for (String line : lines) {
+            parser.line(line);
+        }
+    }
+
+    @Benchmark
+    public void lines() {
+        parser.lines(stream);
+    }
+
+    @Benchmark
+    public void bytes() {
+        parser.bytes(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public void bytesInSegments() {
+        for (int offset = 0; offset < bytes.length; offset += SEGMENT_SIZE) {
+            parser.bytes(bytes, offset, Math.min(SEGMENT_SIZE, bytes.length - offset));
+        }
+    }
+
+    static String stream(Shape shape) {
+        StringBuilder stream = new StringBuilder();
+        for (int i = 0; i < EVENTS; i++) {
+            switch (shape) {
+                case TINY:
+                    stream.append("data: ").append(i).append("\n\n");
+                    break;
+                case LARGE_MULTILINE:
+                    for (int line = 0; line < 20; line++) {
+                        stream.append("data: ");
+                        for (int c = 0; c < 200; c++) {
+                            stream.append((char) ('a' + (c + line) % 26));
+                        }
+                        stream.append('\n');
+                    }
+                    stream.append('\n');
+                    break;
+                case COMMENT_HEAVY:
+                    for (int keepalive = 0; keepalive < 10; keepalive++) {
+                        stream.append(": keepalive\n");
+                    }
+                    stream.append("data: ").append(i).append("\n\n");
+                    break;
+                case ID_RETRY_HEAVY:
+                    stream.append("id: ").append(1000000 + i).append('\n')
+                            .append("retry: 3000\n")
+                            .append("event: tick\n")
+                            .append("data: ").append(i).append("\n\n");
+                    break;
+            }
+        }
+        return stream.toString();
+    }
+}
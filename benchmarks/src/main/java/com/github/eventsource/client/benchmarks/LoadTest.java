@@ -0,0 +1,229 @@
+package com.github.eventsource.client.benchmarks;
+
+import com.github.eventsource.client.EventSource;
+import com.github.eventsource.client.EventSourceClient;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.MessageEvent;
+import com.github.eventsource.server.EventSourceBroadcaster;
+import com.github.eventsource.server.EventSourceServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A soak test: a local {@link EventSourceServer} broadcasts to thousands of EventSources in the same process, and
+ * the throughput, delivery latency, reconnect times, heap and threads are printed every few seconds. Settings are
+ * given as <code>name=value</code> arguments:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.github.eventsource.client.benchmarks.LoadTest clients=10000 rate=100
+ * </pre>
+ *
+ * <ul>
+ * <li><code>clients</code> - the number of EventSources (1000)</li>
+ * <li><code>rate</code> - events broadcast per second (100)</li>
+ * <li><code>size</code> - bytes of data per event (256)</li>
+ * <li><code>duration</code> - seconds to run (60)</li>
+ * <li><code>report</code> - seconds between reports (5)</li>
+ * <li><code>disconnect</code> - seconds between injected disconnects, 0 for none (0)</li>
+ * <li><code>disconnectShare</code> - share of the connections closed by each disconnect (0.1)</li>
+ * <li><code>workers</code> - I/O threads of the client (2 per core)</li>
+ * <li><code>dispatchers</code> - threads running the handlers (1)</li>
+ * <li><code>port</code> - the server's port (59510)</li>
+ * </ul>
+ *
+ * Latencies are in microseconds, from the server encoding an event to a handler receiving it. Many clients need
+ * many file descriptors - raise <code>ulimit -n</code> first.
+ */
+public class LoadTest {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, String> settings;
+    private final Recorder latency = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final Recorder reconnectTime = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger connected = new AtomicInteger();
+
+    public LoadTest(Map<String, String> settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<String, String>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals == -1) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            settings.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        new LoadTest(settings).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        int clients = intSetting("clients", 1000);
+        double rate = Double.parseDouble(setting("rate", "100"));
+        int size = intSetting("size", 256);
+        long durationNanos = TimeUnit.SECONDS.toNanos(intSetting("duration", 60));
+        long reportNanos = TimeUnit.SECONDS.toNanos(intSetting("report", 5));
+        long disconnectNanos = TimeUnit.SECONDS.toNanos(intSetting("disconnect", 0));
+        double disconnectShare = Double.parseDouble(setting("disconnectShare", "0.1"));
+        int workers = intSetting("workers", EventSourceClient.DEFAULT_WORKER_COUNT);
+        int dispatchers = intSetting("dispatchers", 1);
+        int port = intSetting("port", 59510);
+
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster();
+        EventSourceServer server = new EventSourceServer(port, "/es", broadcaster).start();
+        EventSourceClient client = new EventSourceClient(workers, Executors.newFixedThreadPool(dispatchers));
+        URI uri = URI.create("http://localhost:" + port + "/es");
+
+        List<EventSource> eventSources = new ArrayList<EventSource>(clients);
+        for (int i = 0; i < clients; i++) {
+            EventSource eventSource = client.eventSource(uri, new Handler()).setMetrics(new ReconnectTimer());
+            eventSource.connect();
+            eventSources.add(eventSource);
+        }
+        System.out.printf("Connecting %d clients to %s%n", clients, uri);
+
+        char[] padding = new char[size];
+        Arrays.fill(padding, 'x');
+        String payload = new String(padding);
+        long start = System.nanoTime();
+        long nextReport = start + reportNanos;
+        long nextDisconnect = disconnectNanos == 0 ? Long.MAX_VALUE : start + disconnectNanos;
+        long lastReport = start;
+        long lastReceived = 0;
+        long sent = 0;
+        long tick = TimeUnit.MILLISECONDS.toNanos(1);
+        for (long now = start; now - start < durationNanos; now = System.nanoTime()) {
+            // Catch up with the rate every millisecond, so a late wake-up doesn't lower it
+            long due = (long) (rate * (now - start) / TimeUnit.SECONDS.toNanos(1));
+            while (sent < due) {
+                sent++;
+                broadcaster.broadcast(null, String.valueOf(sent), System.nanoTime() + " " + payload);
+            }
+            if (now >= nextDisconnect) {
+                System.out.printf("Disconnected %d clients%n", broadcaster.shed(disconnectShare));
+                nextDisconnect += disconnectNanos;
+            }
+            if (now >= nextReport) {
+                long receivedNow = received.get();
+                report(now - start, (receivedNow - lastReceived) * 1e9 / (now - lastReport), broadcaster);
+                lastReceived = receivedNow;
+                lastReport = now;
+                nextReport += reportNanos;
+            }
+            LockSupport.parkNanos(tick);
+        }
+
+        for (EventSource eventSource : eventSources) {
+            eventSource.close();
+        }
+        server.stop();
+        client.shutdown();
+    }
+
+    private void report(long elapsedNanos, double eventsPerSecond, EventSourceBroadcaster broadcaster) {
+        Histogram latencies = latency.getIntervalHistogram();
+        Histogram reconnects = reconnectTime.getIntervalHistogram();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%4ds connected=%d/%d events/s=%.0f latency(us) p50=%d p99=%d p99.9=%d max=%d " +
+                        "reconnects=%d reconnect(ms) p50=%d p99=%d max=%d errors=%d evicted=%d heap(MB)=%d threads=%d%n",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos),
+                connected.get(), broadcaster.getConnectionCount(),
+                eventsPerSecond,
+                latencies.getValueAtPercentile(50), latencies.getValueAtPercentile(99),
+                latencies.getValueAtPercentile(99.9), latencies.getMaxValue(),
+                reconnects.getTotalCount(),
+                reconnects.getValueAtPercentile(50) / 1000, reconnects.getValueAtPercentile(99) / 1000,
+                reconnects.getMaxValue() / 1000,
+                errors.get(), broadcaster.getEvictedCount(),
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024),
+                ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private String setting(String name, String defaultValue) {
+        String value = settings.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private int intSetting(String name, int defaultValue) {
+        return Integer.parseInt(setting(name, String.valueOf(defaultValue)));
+    }
+
+    private class Handler implements EventSourceHandler {
+        @Override
+        public void onConnect() {
+        }
+
+        @Override
+        public void onMessage(String event, MessageEvent message) {
+            long now = System.nanoTime();
+            String data = message.data;
+            long sentAt = Long.parseLong(data.substring(0, data.indexOf(' ')));
+            latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(now - sentAt), MAX_LATENCY_MICROS));
+            received.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Measures the time from losing a connection to having a new one.
+     */
+    private class ReconnectTimer implements EventSourceMetrics {
+        private volatile long disconnectedAt;
+
+        @Override
+        public void connected() {
+            connected.incrementAndGet();
+            long since = disconnectedAt;
+            if (since != 0) {
+                reconnectTime.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - since), MAX_LATENCY_MICROS));
+                disconnectedAt = 0;
+            }
+        }
+
+        @Override
+        public void reconnecting(Throwable cause, long delayMillis) {
+            if (disconnectedAt == 0) {
+                connected.decrementAndGet();
+                disconnectedAt = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void bytesRead(int count) {
+        }
+
+        @Override
+        public void parsed(int lines, long nanos) {
+        }
+
+        @Override
+        public void eventQueued(int pendingCount) {
+        }
+
+        @Override
+        public void eventDelivered(int pendingCount, long handlerNanos) {
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.eventsource.client.benchmarks;
+
+import com.github.eventsource.client.EventSource;
+import com.github.eventsource.client.EventSourceClient;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from the server writing one event to the client's handler receiving it, through a real
+ * socket on localhost. The sample-time mode reports the p99 and other percentiles of the delivery latency.
+ * Run with <code>-prof gc</code> to see the bytes allocated per event (client and server together).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackLatencyBenchmark {
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private final BlockingQueue<MessageEvent> received = new LinkedBlockingQueue<MessageEvent>();
+    private LoopbackServer server;
+    private EventSourceClient client;
+    private EventSource eventSource;
+    private ChannelBuffer event;
+
+    @Setup
+    public void setup() throws Exception {
+        event = encode(payloadSize);
+        server = new LoopbackServer().start();
+        client = new EventSourceClient();
+        final CountDownLatch connected = new CountDownLatch(1);
+        eventSource = client.eventSource(server.uri(), new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+                connected.countDown();
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                t.printStackTrace();
+            }
+        });
+        eventSource.connect();
+        server.awaitConnection();
+        connected.await();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        eventSource.close().join();
+        server.stop();
+        client.shutdown();
+    }
+
+    @Benchmark
+    public MessageEvent deliver() throws InterruptedException {
+        server.send(event);
+        return received.take();
+    }
+
+    static ChannelBuffer encode(int payloadSize) {
+        StringBuilder event = new StringBuilder("data: ");
+        for (int i = 0; i < payloadSize; i++) {
+            event.append((char) ('a' + i % 26));
+        }
+        event.append("\n\n");
+        return ChannelBuffers.copiedBuffer(event, Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.eventsource.client.benchmarks;
+
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bare-bones event stream server on a local port. It answers the first request on a connection with an
+ * event stream header and then writes whatever it is given with {@link #send(ChannelBuffer)}.
+ * Only one client connection at a time is supported.
+ */
+public class LoopbackServer {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ChannelBuffer RESPONSE_HEADER = ChannelBuffers.copiedBuffer("" +
+            "HTTP/1.1 200 OK\r\n" +
+            "Content-Type: text/event-stream\r\n" +
+            "Cache-Control: no-cache\r\n" +
+            "\r\n", UTF_8);
+
+    private final ServerBootstrap bootstrap;
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private Channel serverChannel;
+    private volatile Channel connection;
+
+    public LoopbackServer() {
+        bootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(
+                Executors.newCachedThreadPool(),
+                Executors.newCachedThreadPool()));
+        bootstrap.setOption("child.tcpNoDelay", true);
+        bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            public ChannelPipeline getPipeline() throws Exception {
+                ChannelPipeline pipeline = Channels.pipeline();
+                pipeline.addLast("handler", new SimpleChannelUpstreamHandler() {
+                    @Override
+                    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+                        if (connection == null) {
+                            connection = e.getChannel();
+                            connection.write(RESPONSE_HEADER.duplicate());
+                            connected.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+                        e.getChannel().close();
+                    }
+                });
+                return pipeline;
+            }
+        });
+    }
+
+    public LoopbackServer start() {
+        serverChannel = bootstrap.bind(new InetSocketAddress("localhost", 0));
+        return this;
+    }
+
+    public URI uri() {
+        int port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        return URI.create("http://localhost:" + port + "/es");
+    }
+
+    public LoopbackServer awaitConnection() throws InterruptedException {
+        if (!connected.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("No client connected to " + uri());
+        }
+        return this;
+    }
+
+    /**
+     * Writes bytes to the connected client without copying them.
+     *
+     * @param bytes an encoded event. Its reader index is left untouched, so it may be sent again.
+     */
+    public void send(ChannelBuffer bytes) {
+        connection.write(bytes.duplicate());
+    }
+
+    /**
+     * @return false if the client isn't reading fast enough and writes are being queued
+     */
+    public boolean isWritable() {
+        return connection.isWritable();
+    }
+
+    public void stop() {
+        if (connection != null) {
+            connection.close().awaitUninterruptibly();
+        }
+        serverChannel.close().awaitUninterruptibly();
+        bootstrap.releaseExternalResources();
+    }
+}
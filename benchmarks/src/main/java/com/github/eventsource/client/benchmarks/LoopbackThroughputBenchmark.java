@@ -0,0 +1,109 @@
+package com.github.eventsource.client.benchmarks;
+
+import com.github.eventsource.client.EventSource;
+import com.github.eventsource.client.EventSourceClient;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Floods an EventSource from a local server and reports the number of events delivered to the handler per
+ * second as the <code>events</code> counter. The server writes batches of {@link #EVENTS_PER_WRITE} events
+ * whenever the socket is writable, so the client is the bottleneck.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackThroughputBenchmark {
+    private static final int EVENTS_PER_WRITE = 64;
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private LoopbackServer server;
+    private EventSourceClient client;
+    private EventSource eventSource;
+    private ChannelBuffer events;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            events = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        ChannelBuffer event = LoopbackLatencyBenchmark.encode(payloadSize);
+        events = ChannelBuffers.buffer(event.readableBytes() * EVENTS_PER_WRITE);
+        for (int i = 0; i < EVENTS_PER_WRITE; i++) {
+            events.writeBytes(event, event.readerIndex(), event.readableBytes());
+        }
+        server = new LoopbackServer().start();
+        client = new EventSourceClient();
+        final CountDownLatch connected = new CountDownLatch(1);
+        eventSource = client.eventSource(server.uri(), new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+                connected.countDown();
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                t.printStackTrace();
+            }
+        });
+        eventSource.connect();
+        server.awaitConnection();
+        connected.await();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        eventSource.close().join();
+        server.stop();
+        client.shutdown();
+    }
+
+    @Benchmark
+    public void flood(Counters counters) {
+        if (server.isWritable()) {
+            server.send(events);
+        } else {
+            Thread.yield();
+        }
+        counters.events += delivered.getAndSet(0);
+    }
+}
@@ -0,0 +1,339 @@
+package com.github.eventsource.client.jdk;
+
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventFilter;
+import com.github.eventsource.client.EventSourceException;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.EventStream;
+import com.github.eventsource.client.ReconnectionPolicy;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.EventStreamSession;
+import com.github.eventsource.client.impl.MessageEventPool;
+import com.github.eventsource.client.journal.JournalWriter;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An <a href="http://dev.w3.org/html5/eventsource/">EventSource</a> on {@link java.net.http.HttpClient}. It behaves
+ * like {@link com.github.eventsource.client.EventSource} - the same setters mean the same things - except that it
+ * has no limit on connections per origin. Create it from a {@link JdkEventSourceClient}.
+ *
+ * The response body is read as a {@link Flow.Subscriber}, one piece at a time. While a dispatcher has paused
+ * reading, no more pieces are requested, and the HttpClient stops reading from the socket.
+ */
+public class JdkEventSource implements EventStream {
+    private final JdkEventSourceClient client;
+    private final URI uri;
+    private final EventStreamSession session;
+
+    private volatile Connection connection;
+    private volatile boolean readable = true;
+    private volatile boolean reconnectOnClose = true;
+    private volatile long readTimeoutMillis;
+
+    JdkEventSource(JdkEventSourceClient client, long reconnectionTimeMillis, URI uri, EventDispatcher dispatcher) {
+        this.client = client;
+        this.uri = uri;
+        this.session = new EventStreamSession(uri, dispatcher, reconnectionTimeMillis);
+        dispatcher.setFlowControl(readable -> {
+            this.readable = readable;
+            Connection connection = this.connection;
+            if (connection != null && readable) {
+                connection.resume();
+            }
+        });
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setReconnectionPolicy(ReconnectionPolicy)
+     */
+    public JdkEventSource setReconnectionPolicy(ReconnectionPolicy reconnectionPolicy) {
+        session.setReconnectionPolicy(reconnectionPolicy);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setReadTimeoutMillis(long)
+     */
+    public JdkEventSource setReadTimeoutMillis(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setCheckpointStore(CheckpointStore)
+     */
+    public JdkEventSource setCheckpointStore(CheckpointStore checkpointStore) {
+        session.setCheckpointStore(checkpointStore);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setMetrics(EventSourceMetrics)
+     */
+    public JdkEventSource setMetrics(EventSourceMetrics metrics) {
+        session.setMetrics(metrics);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setRawData(boolean)
+     */
+    public JdkEventSource setRawData(boolean rawData) {
+        session.setRawData(rawData);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setMessagePoolSize(int)
+     */
+    public JdkEventSource setMessagePoolSize(int poolSize) {
+        session.setMessagePool(poolSize == 0 ? null : new MessageEventPool(poolSize));
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setJournal(JournalWriter)
+     */
+    public JdkEventSource setJournal(JournalWriter journal) {
+        session.setJournal(journal);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setEventFilter(EventFilter)
+     */
+    public JdkEventSource setEventFilter(EventFilter eventFilter) {
+        session.setEventFilter(eventFilter);
+        return this;
+    }
+
+    /**
+     * Connects to the server, without waiting for the connection to be made. A connection that is already open is
+     * closed first.
+     *
+     * @return self
+     */
+    @Override
+    public synchronized JdkEventSource open() {
+        Connection previous = this.connection;
+        Connection connection = new Connection();
+        this.connection = connection;
+        if (previous != null) {
+            // It is no longer the current connection, so it won't reconnect
+            previous.cancel();
+        }
+        connection.start();
+        return this;
+    }
+
+    @Override
+    public synchronized JdkEventSource close() {
+        reconnectOnClose = false;
+        Connection connection = this.connection;
+        if (connection != null) {
+            connection.cancel();
+        }
+        return this;
+    }
+
+    @Override
+    public JdkEventSource join() throws InterruptedException {
+        Connection connection = this.connection;
+        if (connection != null) {
+            connection.closed.await();
+        }
+        return this;
+    }
+
+    private void reconnect(Connection closed) {
+        long delayMillis = session.reconnectDelayMillis();
+        client.scheduler().schedule(() -> {
+            synchronized (this) {
+                // Unless open has been called in the meantime
+                if (reconnectOnClose && connection == closed) {
+                    open();
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * One request and its response. The HttpClient calls it from its own threads, one call at a time, and the
+     * session is only used while holding the connection's lock, so closing from another thread is safe. Resuming
+     * doesn't take the lock, as dispatchers resume while holding locks of their own that onNext may need.
+     */
+    private class Connection implements Flow.Subscriber<List<ByteBuffer>> {
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final AtomicBoolean paused = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+        private volatile long lastReadNanos;
+        private boolean accepted;
+        private boolean done;
+        private ScheduledFuture<?> timeoutCheck;
+        private byte[] copyBuffer = new byte[0];
+
+        synchronized void start() {
+            session.connected();
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri).GET();
+            for (Map.Entry<String, String> header : session.requestHeaders().entrySet()) {
+                // The HttpClient sets Host itself, and won't let anyone else
+                if (!header.getKey().equals("Host")) {
+                    request.header(header.getKey(), header.getValue());
+                }
+            }
+            long timeout = readTimeoutMillis;
+            if (timeout > 0) {
+                // Covers the wait for the response headers. The body is watched by the timeout check.
+                request.timeout(Duration.ofMillis(timeout));
+                lastReadNanos = System.nanoTime();
+                timeoutCheck = client.scheduler().scheduleWithFixedDelay(this::checkTimeout, timeout, timeout, TimeUnit.MILLISECONDS);
+            }
+            client.httpClient().sendAsync(request.build(), this::response).whenComplete((response, error) -> {
+                if (error != null) {
+                    fail(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                }
+            });
+        }
+
+        private synchronized HttpResponse.BodySubscriber<Void> response(HttpResponse.ResponseInfo info) {
+            Map<String, String> headers = new HashMap<>();
+            for (Map.Entry<String, List<String>> header : info.headers().map().entrySet()) {
+                headers.put(header.getKey().toLowerCase(Locale.ROOT), String.join(",", header.getValue()));
+            }
+            if (!done) {
+                try {
+                    session.response(info.statusCode(), headers);
+                    accepted = true;
+                } catch (Exception e) {
+                    fail(e);
+                }
+            }
+            return HttpResponse.BodySubscribers.fromSubscriber(this);
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (!accepted || done) {
+                subscription.cancel();
+                return;
+            }
+            request();
+        }
+
+        @Override
+        public synchronized void onNext(List<ByteBuffer> buffers) {
+            if (done) {
+                return;
+            }
+            lastReadNanos = System.nanoTime();
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    int length = buffer.remaining();
+                    if (buffer.hasArray()) {
+                        session.content(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                    } else {
+                        if (copyBuffer.length < length) {
+                            copyBuffer = new byte[length];
+                        }
+                        buffer.get(copyBuffer, 0, length);
+                        session.content(copyBuffer, 0, length);
+                    }
+                }
+                session.readComplete();
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            request();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(error);
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+        }
+
+        /**
+         * Asks for the next piece of the body, unless reading is paused.
+         */
+        private void request() {
+            if (readable) {
+                subscription.request(1);
+                return;
+            }
+            paused.set(true);
+            // Reading may have been resumed before the pause was seen
+            if (readable && paused.compareAndSet(true, false)) {
+                subscription.request(1);
+            }
+        }
+
+        void resume() {
+            if (paused.compareAndSet(true, false)) {
+                // Time spent paused doesn't count towards the read timeout
+                lastReadNanos = System.nanoTime();
+                subscription.request(1);
+            }
+        }
+
+        synchronized void cancel() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            finish();
+        }
+
+        private synchronized void checkTimeout() {
+            long silentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReadNanos);
+            if (!paused.get() && silentMillis >= readTimeoutMillis) {
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+                fail(new EventSourceException("Nothing read from " + uri + " for too long - reconnecting"));
+            }
+        }
+
+        private synchronized void fail(Throwable error) {
+            if (done) {
+                return;
+            }
+            session.failed(error);
+            finish();
+        }
+
+        private synchronized void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (timeoutCheck != null) {
+                timeoutCheck.cancel(false);
+            }
+            session.closed();
+            closed.countDown();
+            if (reconnectOnClose && connection == this) {
+                reconnect(this);
+            }
+        }
+    }
+}
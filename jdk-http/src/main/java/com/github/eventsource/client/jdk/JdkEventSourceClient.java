@@ -0,0 +1,115 @@
+package com.github.eventsource.client.jdk;
+
+import com.github.eventsource.client.EventSource;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.KeyExtractor;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.PartitionedDispatcher;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Creates EventSources that run on the JDK's own {@link HttpClient}, for applications that would rather not have
+ * Netty on the class path at all. Nothing is started until the first connect, and the client's only thread of its
+ * own times reconnects and read timeouts:
+ *
+ * <pre>
+ * JdkEventSourceClient client = new JdkEventSourceClient();
+ * JdkEventSource es = client.eventSource(uri, handler).open();
+ * ...
+ * es.close();
+ * client.shutdown();
+ * </pre>
+ *
+ * Handlers receive events one at a time, in order, on the dispatch executor. Dispatchers that need Netty's timer -
+ * the batching ones from {@link com.github.eventsource.client.EventSourceClient} - can't be used.
+ *
+ * @see #shutdown()
+ */
+public class JdkEventSourceClient {
+    private final HttpClient httpClient;
+    private final ExecutorService dispatchExecutor;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a client with a default HttpClient and a single thread delivering events to all handlers.
+     */
+    public JdkEventSourceClient() {
+        this(HttpClient.newHttpClient(), Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * @param httpClient makes the connections, e.g. one with a custom SSLContext, proxy or HTTP version
+     * @param dispatchExecutor the default executor that will receive events. It is shut down by {@link #shutdown()}.
+     */
+    public JdkEventSourceClient(HttpClient httpClient, ExecutorService dispatchExecutor) {
+        this.httpClient = httpClient;
+        this.dispatchExecutor = dispatchExecutor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eventsource-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a new EventSource that delivers events on this client's dispatch executor.
+     *
+     * @param uri where to connect
+     * @param eventSourceHandler receives events
+     * @return the EventSource, not yet connected
+     */
+    public JdkEventSource eventSource(URI uri, EventSourceHandler eventSourceHandler) {
+        return eventSource(dispatchExecutor, EventSource.DEFAULT_RECONNECTION_TIME_MILLIS, uri, eventSourceHandler);
+    }
+
+    /**
+     * Creates a new EventSource.
+     *
+     * @param executor the executor that will receive events
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param eventSourceHandler receives events
+     * @return the EventSource, not yet connected
+     */
+    public JdkEventSource eventSource(Executor executor, long reconnectionTimeMillis, URI uri, EventSourceHandler eventSourceHandler) {
+        // A single partition delivers every event in order, like the Netty transport's default dispatcher
+        return eventSource(reconnectionTimeMillis, uri, new PartitionedDispatcher(executor, eventSourceHandler, 1, KeyExtractor.EVENT_NAME));
+    }
+
+    /**
+     * Creates a new EventSource that hands its events to a dispatcher, e.g. a
+     * {@link com.github.eventsource.client.impl.BlockingDispatcher} or a {@link PartitionedDispatcher}.
+     *
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param dispatcher receives events on the HttpClient's threads
+     * @return the EventSource, not yet connected
+     */
+    public JdkEventSource eventSource(long reconnectionTimeMillis, URI uri, EventDispatcher dispatcher) {
+        return new JdkEventSource(this, reconnectionTimeMillis, uri, dispatcher);
+    }
+
+    HttpClient httpClient() {
+        return httpClient;
+    }
+
+    ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Stops reconnecting and shuts down the dispatch executor. All EventSources created from this client should be
+     * closed first. The HttpClient is left alone, as it may be shared with other code.
+     * Must not be called from a handler callback.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatchExecutor.shutdown();
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.eventsource.client.jdk;
+
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+import com.github.eventsource.client.impl.BlockingDispatcher;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class JdkEventSourceTest {
+    private final List<String> lastEventIds = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Integer> closedRequests = new LinkedBlockingQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch stop = new CountDownLatch(1);
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private volatile Stream stream;
+    private URI uri;
+    private JdkEventSourceClient client;
+    private JdkEventSource eventSource;
+
+    /**
+     * Writes the body of the response to a request, which is ended when it returns.
+     */
+    private interface Stream {
+        void write(int request, OutputStream body) throws Exception;
+    }
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/es", exchange -> {
+            int n = requests.incrementAndGet();
+            lastEventIds.add(String.valueOf(exchange.getRequestHeaders().getFirst("Last-Event-ID")));
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                stream.write(n, body);
+            } catch (IOException e) {
+                closedRequests.add(n);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/es");
+        client = new JdkEventSourceClient();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        if (eventSource != null) {
+            eventSource.close().join();
+        }
+        client.shutdown();
+        stop.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void reconnectsWithLastEventIdWhenResponseEnds() throws Exception {
+        stream = (n, body) -> write(body, "id: " + n + "\ndata: message " + n + "\n\n");
+        eventSource = client.eventSource(Executors.newSingleThreadExecutor(), 100, uri, new RecordingHandler()).open();
+
+        assertEquals("connect", next());
+        assertEquals("message 1", next());
+        assertEquals("connect", next());
+        assertEquals("message 2", next());
+        assertEquals(asList("null", "1"), lastEventIds.subList(0, 2));
+    }
+
+    @Test
+    public void reconnectsWithLastEventIdWhenServerGoesSilent() throws Exception {
+        stream = (n, body) -> {
+            write(body, "id: " + n + "\ndata: message " + n + "\n\n");
+            // ...and then nothing, as if the connection had been dropped on the way
+            stop.await();
+        };
+        eventSource = client.eventSource(Executors.newSingleThreadExecutor(), 100, uri, new RecordingHandler());
+        eventSource.setReadTimeoutMillis(200).open();
+
+        assertEquals("connect", next());
+        assertEquals("message 1", next());
+        assertTrue(next().startsWith("error Nothing read from " + uri));
+        assertEquals("connect", next());
+        assertEquals("message 2", next());
+        assertEquals(asList("null", "1"), lastEventIds.subList(0, 2));
+    }
+
+    @Test
+    public void pausesReadingWhileDispatcherIsFullWithoutTimingOut() throws Exception {
+        final int count = 20000;
+        stream = (n, body) -> {
+            for (int i = 0; i < count; i++) {
+                body.write(("data: " + i + "\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+            body.flush();
+            stop.await();
+        };
+        BlockingDispatcher events = new BlockingDispatcher(10);
+        eventSource = client.eventSource(100, uri, events);
+        eventSource.setReadTimeoutMillis(200).open();
+
+        // Nothing is taken for several timeouts
+        Thread.sleep(1000);
+        assertTrue("Read " + events.getPendingCount() + " events", events.getPendingCount() < count);
+        assertEquals(1, requests.get());
+
+        for (int i = 0; i < count; i++) {
+            BlockingDispatcher.Event event = events.poll(1, TimeUnit.SECONDS);
+            assertNotNull("Didn't get event " + i, event);
+            assertEquals(String.valueOf(i), event.message.data);
+        }
+        assertEquals(1, requests.get());
+        events.close();
+    }
+
+    @Test
+    public void openingAgainClosesPreviousConnection() throws Exception {
+        stream = (n, body) -> {
+            write(body, "data: message " + n + "\n\n");
+            // Comments until the client goes away
+            while (!stop.await(50, TimeUnit.MILLISECONDS)) {
+                write(body, ":\n");
+            }
+        };
+        eventSource = client.eventSource(Executors.newSingleThreadExecutor(), 100, uri, new RecordingHandler()).open();
+        assertEquals("connect", next());
+        assertEquals("message 1", next());
+
+        eventSource.open();
+        assertEquals("connect", next());
+        assertEquals("message 2", next());
+
+        assertEquals(Integer.valueOf(1), closedRequests.poll(2, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertTrue(closedRequests.isEmpty());
+        assertEquals(2, requests.get());
+    }
+
+    private String next() throws InterruptedException {
+        String next = received.poll(2, TimeUnit.SECONDS);
+        assertNotNull("Nothing received", next);
+        return next;
+    }
+
+    private static void write(OutputStream body, String text) throws IOException {
+        body.write(text.getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private class RecordingHandler implements EventSourceHandler {
+        @Override
+        public void onConnect() {
+            received.add("connect");
+        }
+
+        @Override
+        public void onMessage(String event, MessageEvent message) {
+            received.add(message.data);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            received.add("error " + t.getMessage());
+        }
+    }
+}
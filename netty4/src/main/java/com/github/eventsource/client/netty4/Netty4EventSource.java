@@ -0,0 +1,300 @@
+package com.github.eventsource.client.netty4;
+
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventFilter;
+import com.github.eventsource.client.EventSourceException;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.EventStream;
+import com.github.eventsource.client.ReconnectionPolicy;
+import com.github.eventsource.client.SslEngineFactory;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.EventStreamSession;
+import com.github.eventsource.client.impl.FlowControl;
+import com.github.eventsource.client.impl.MessageEventPool;
+import com.github.eventsource.client.journal.JournalWriter;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An <a href="http://dev.w3.org/html5/eventsource/">EventSource</a> on Netty 4. It behaves like
+ * {@link com.github.eventsource.client.EventSource} - the same setters mean the same things - except that it has no
+ * limit on connections per origin. Create it from a {@link Netty4EventSourceClient}.
+ */
+public class Netty4EventSource implements EventStream {
+    private final Bootstrap bootstrap;
+    private final URI uri;
+    private final EventStreamSession session;
+    private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+
+    private volatile Channel channel;
+    private volatile boolean readable = true;
+    private volatile boolean reconnectOnClose = true;
+    private volatile long readTimeoutMillis;
+
+    Netty4EventSource(Netty4EventSourceClient client, long reconnectionTimeMillis, final URI uri, EventDispatcher dispatcher) {
+        this.uri = uri;
+        this.session = new EventStreamSession(uri, dispatcher, reconnectionTimeMillis);
+        dispatcher.setFlowControl(new FlowControl() {
+            @Override
+            public void setReadable(boolean readable) {
+                Netty4EventSource.this.readable = readable;
+                Channel channel = Netty4EventSource.this.channel;
+                if (channel != null) {
+                    channel.config().setAutoRead(readable);
+                }
+            }
+        });
+
+        final SslEngineFactory sslEngineFactory = "https".equalsIgnoreCase(uri.getScheme()) ? client.getSslEngineFactory() : null;
+        final StreamHandler streamHandler = new StreamHandler();
+        bootstrap = client.bootstrap().handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) {
+                ChannelPipeline pipeline = channel.pipeline();
+                if (readTimeoutMillis > 0) {
+                    pipeline.addLast("timeout", new IdleStateHandler(readTimeoutMillis, 0, 0, TimeUnit.MILLISECONDS));
+                }
+                if (sslEngineFactory != null) {
+                    pipeline.addLast("ssl", new SslHandler(sslEngineFactory.createSslEngine(uri.getHost(), port(uri))));
+                }
+                pipeline.addLast("encoder", new HttpRequestEncoder());
+                pipeline.addLast("es-handler", streamHandler);
+            }
+        });
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setReconnectionPolicy(ReconnectionPolicy)
+     */
+    public Netty4EventSource setReconnectionPolicy(ReconnectionPolicy reconnectionPolicy) {
+        session.setReconnectionPolicy(reconnectionPolicy);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setReadTimeoutMillis(long)
+     */
+    public Netty4EventSource setReadTimeoutMillis(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setCheckpointStore(CheckpointStore)
+     */
+    public Netty4EventSource setCheckpointStore(CheckpointStore checkpointStore) {
+        session.setCheckpointStore(checkpointStore);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setMetrics(EventSourceMetrics)
+     */
+    public Netty4EventSource setMetrics(EventSourceMetrics metrics) {
+        session.setMetrics(metrics);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setRawData(boolean)
+     */
+    public Netty4EventSource setRawData(boolean rawData) {
+        session.setRawData(rawData);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setMessagePoolSize(int)
+     */
+    public Netty4EventSource setMessagePoolSize(int poolSize) {
+        session.setMessagePool(poolSize == 0 ? null : new MessageEventPool(poolSize));
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setJournal(JournalWriter)
+     */
+    public Netty4EventSource setJournal(JournalWriter journal) {
+        session.setJournal(journal);
+        return this;
+    }
+
+    /**
+     * @see com.github.eventsource.client.EventSource#setEventFilter(EventFilter)
+     */
+    public Netty4EventSource setEventFilter(EventFilter eventFilter) {
+        session.setEventFilter(eventFilter);
+        return this;
+    }
+
+    /**
+     * Connect to the server.
+     *
+     * @return a future that completes when the connection has been made
+     */
+    public ChannelFuture connect() {
+        ChannelFuture future = bootstrap.connect(uri.getHost(), port(uri));
+        future.addListener(f -> {
+            // A connection that was never made is never inactive either
+            if (!f.isSuccess()) {
+                session.failed(f.cause());
+                session.closed();
+                if (reconnectOnClose) {
+                    reconnect();
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public Netty4EventSource open() {
+        connect();
+        return this;
+    }
+
+    @Override
+    public Netty4EventSource close() {
+        reconnectOnClose = false;
+        Channel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+        }
+        return this;
+    }
+
+    @Override
+    public Netty4EventSource join() throws InterruptedException {
+        Channel channel = this.channel;
+        if (channel != null) {
+            channel.closeFuture().await();
+        }
+        return this;
+    }
+
+    private void reconnect() {
+        if (reconnecting.compareAndSet(false, true)) {
+            long delayMillis = session.reconnectDelayMillis();
+            bootstrap.config().group().schedule(() -> {
+                reconnecting.set(false);
+                if (reconnectOnClose) {
+                    connect();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    /**
+     * Shared by the connections of one EventSource, which follow each other.
+     */
+    @ChannelHandler.Sharable
+    private class StreamHandler extends ChannelInboundHandlerAdapter {
+        private byte[] copyBuffer = new byte[0];
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            if (!reconnectOnClose) {
+                ctx.close();
+                return;
+            }
+            session.connected();
+            channel = ctx.channel();
+            channel.config().setAutoRead(readable);
+            SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+            if (sslHandler == null) {
+                ctx.writeAndFlush(request());
+            } else {
+                sslHandler.handshakeFuture().addListener(f -> {
+                    // A failed handshake goes to exceptionCaught, which closes the channel
+                    if (f.isSuccess()) {
+                        ctx.writeAndFlush(request());
+                    }
+                });
+            }
+        }
+
+        private FullHttpRequest request() {
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri.toString());
+            for (Map.Entry<String, String> header : session.requestHeaders().entrySet()) {
+                request.headers().add(header.getKey(), header.getValue());
+            }
+            return request;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ByteBuf buffer = (ByteBuf) msg;
+            try {
+                int length = buffer.readableBytes();
+                boolean open;
+                if (buffer.hasArray()) {
+                    open = session.bytes(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
+                } else {
+                    // Pooled direct buffers are the norm - copy into one array that lives as long as the handler
+                    if (copyBuffer.length < length) {
+                        copyBuffer = new byte[length];
+                    }
+                    buffer.getBytes(buffer.readerIndex(), copyBuffer, 0, length);
+                    open = session.bytes(copyBuffer, 0, length);
+                }
+                if (!open) {
+                    // The server ended the stream, but kept the connection open
+                    ctx.close();
+                }
+            } finally {
+                buffer.release();
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            // Nothing is read while reading is paused, so that doesn't count
+            if (evt instanceof IdleStateEvent && readable) {
+                session.failed(new EventSourceException("Nothing read from " + uri + " for too long - reconnecting"));
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            session.failed(cause);
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            channel = null;
+            session.closed();
+            if (reconnectOnClose) {
+                reconnect();
+            }
+        }
+    }
+}
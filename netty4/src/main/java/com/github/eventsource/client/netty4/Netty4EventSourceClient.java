@@ -0,0 +1,152 @@
+package com.github.eventsource.client.netty4;
+
+import com.github.eventsource.client.EventSource;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.JdkSslEngineFactory;
+import com.github.eventsource.client.SslEngineFactory;
+import com.github.eventsource.client.impl.AsyncEventSourceHandler;
+import com.github.eventsource.client.impl.EventDispatcher;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates EventSources that run on Netty 4. On Linux, with the native library on the class path, connections use the
+ * epoll transport, which needs fewer system calls per read than NIO; elsewhere they use NIO. Either way reads go into
+ * pooled direct buffers, so long-lived connections don't allocate a buffer per read.
+ *
+ * <pre>
+ * Netty4EventSourceClient client = new Netty4EventSourceClient();
+ * Netty4EventSource es = client.eventSource(uri, handler).open();
+ * ...
+ * es.close();
+ * client.shutdown();
+ * </pre>
+ *
+ * The handlers, dispatchers, metrics and checkpoint stores are the same as for the Netty 3
+ * {@link com.github.eventsource.client.EventSourceClient}.
+ *
+ * @see #shutdown()
+ */
+public class Netty4EventSourceClient {
+    private final EventLoopGroup group;
+    private final Bootstrap bootstrap;
+    private final boolean epoll;
+    private final ExecutorService dispatchExecutor;
+    private SslEngineFactory sslEngineFactory;
+
+    /**
+     * Creates a client with Netty's default number of I/O threads (2 per core) and a single thread delivering events
+     * to all handlers.
+     */
+    public Netty4EventSourceClient() {
+        this(0, Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * @param workerCount number of I/O threads shared by all EventSources created from this client, 0 for Netty's
+     * default
+     * @param dispatchExecutor the default executor that will receive events. It is shut down by {@link #shutdown()}.
+     */
+    public Netty4EventSourceClient(int workerCount, ExecutorService dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+        this.epoll = Epoll.isAvailable();
+        this.group = epoll ? new EpollEventLoopGroup(workerCount) : new NioEventLoopGroup(workerCount);
+        this.bootstrap = new Bootstrap()
+                .group(group)
+                .channel(epoll ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true);
+    }
+
+    /**
+     * Creates a new EventSource that shares this client's threads and delivers events on its dispatch executor.
+     *
+     * @param uri where to connect
+     * @param eventSourceHandler receives events
+     * @return the EventSource, not yet connected
+     */
+    public Netty4EventSource eventSource(URI uri, EventSourceHandler eventSourceHandler) {
+        return eventSource(dispatchExecutor, EventSource.DEFAULT_RECONNECTION_TIME_MILLIS, uri, eventSourceHandler);
+    }
+
+    /**
+     * Creates a new EventSource that shares this client's threads.
+     *
+     * @param executor the executor that will receive events
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param eventSourceHandler receives events
+     * @return the EventSource, not yet connected
+     */
+    public Netty4EventSource eventSource(Executor executor, long reconnectionTimeMillis, URI uri, EventSourceHandler eventSourceHandler) {
+        return eventSource(reconnectionTimeMillis, uri, new AsyncEventSourceHandler(executor, eventSourceHandler));
+    }
+
+    /**
+     * Creates a new EventSource that hands its events to a dispatcher, e.g. one created by a
+     * {@link com.github.eventsource.client.EventSourceClient}.
+     *
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param dispatcher receives events on the I/O thread
+     * @return the EventSource, not yet connected
+     */
+    public Netty4EventSource eventSource(long reconnectionTimeMillis, URI uri, EventDispatcher dispatcher) {
+        return new Netty4EventSource(this, reconnectionTimeMillis, uri, dispatcher);
+    }
+
+    /**
+     * @return true if connections use the native epoll transport, false if they use NIO
+     */
+    public boolean isEpoll() {
+        return epoll;
+    }
+
+    /**
+     * Set how https connections are encrypted. The default uses the JVM's default SSLContext.
+     *
+     * @param sslEngineFactory creates an engine for each https connection
+     * @return self
+     */
+    public synchronized Netty4EventSourceClient setSslEngineFactory(SslEngineFactory sslEngineFactory) {
+        this.sslEngineFactory = sslEngineFactory;
+        return this;
+    }
+
+    /**
+     * @return the factory for https connections
+     */
+    public synchronized SslEngineFactory getSslEngineFactory() {
+        if (sslEngineFactory == null) {
+            sslEngineFactory = new JdkSslEngineFactory();
+        }
+        return sslEngineFactory;
+    }
+
+    Bootstrap bootstrap() {
+        return bootstrap.clone();
+    }
+
+    /**
+     * Releases the threads held by this client. All EventSources created from it should be closed first -
+     * pending reconnects are cancelled and open connections are closed.
+     * Must not be called from a handler callback.
+     */
+    public void shutdown() {
+        group.shutdownGracefully().syncUninterruptibly();
+        dispatchExecutor.shutdown();
+    }
+}
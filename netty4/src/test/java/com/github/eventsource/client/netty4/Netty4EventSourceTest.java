@@ -0,0 +1,124 @@
+package com.github.eventsource.client.netty4;
+
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Netty4EventSourceTest {
+    private final List<String> lastEventIds = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private URI uri;
+    private Netty4EventSourceClient client;
+    private Netty4EventSource eventSource;
+
+    @Before
+    public void startServer() throws Exception {
+        // Sends one event per request and ends the response, so that the client reconnects
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/es", exchange -> {
+            int n = requests.incrementAndGet();
+            lastEventIds.add(String.valueOf(exchange.getRequestHeaders().getFirst("Last-Event-ID")));
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(("id: " + n + "\ndata: message " + n + "\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/es");
+        client = new Netty4EventSourceClient();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        if (eventSource != null) {
+            eventSource.close().join();
+        }
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void connectsReceivesAndReconnectsWithLastEventId() throws Exception {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch messageCountdown = new CountDownLatch(2);
+        final AtomicInteger connects = new AtomicInteger();
+        eventSource = client.eventSource(Executors.newSingleThreadExecutor(), 100, uri, new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+                connects.incrementAndGet();
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                received.add(message.data);
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        });
+        eventSource.open();
+
+        assertTrue("Didn't get all messages", messageCountdown.await(2000, TimeUnit.MILLISECONDS));
+        assertEquals(asList("message 1", "message 2"), received.subList(0, 2));
+        assertEquals(asList("null", "1"), lastEventIds.subList(0, 2));
+        assertTrue(connects.get() >= 2);
+    }
+
+    @Test
+    public void reconnectsIfServerIsDownAtFirst() throws Exception {
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        final CountDownLatch errorCountdown = new CountDownLatch(1);
+        final CountDownLatch messageCountdown = new CountDownLatch(1);
+        eventSource = client.eventSource(Executors.newSingleThreadExecutor(), 100, uri, new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errorCountdown.countDown();
+            }
+        });
+        eventSource.open();
+        assertTrue("Didn't get an error on the failed connection", errorCountdown.await(2000, TimeUnit.MILLISECONDS));
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/es", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("data: back\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        assertTrue("Didn't reconnect", messageCountdown.await(2000, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.eventsource.server;
+
+import com.github.eventsource.client.impl.EventStreamEncoder;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends events to every connected channel. Each event is encoded once, into a direct buffer, and every channel
+ * writes a duplicate of that buffer - a view of the same memory - so broadcasting to thousands of connections costs
+ * no copying and no per-connection encoding.
+ *
+ * Each connection may have a limited number of bytes waiting to be written. A client that reads too slowly to keep
+ * within the limit is disconnected, so that it can't make the server buffer without bound; it reconnects and
+ * resumes from its last event id.
+ *
+ * The latest events are kept in a replay ring. A connection that starts with a Last-Event-ID found in the ring first
+ * gets the events sent after it. If the id has already left the ring, the connection only gets new events.
+ *
+ * Events are written one broadcast at a time, so every connection gets them in the same order, but without holding
+ * the lock that guards the connections: adding, removing and counting connections never wait for a write.
+ */
+public class EventSourceBroadcaster {
+    public static final int DEFAULT_REPLAY_SIZE = 1024;
+    public static final int DEFAULT_MAX_PENDING_BYTES = 1024 * 1024;
+
+    private final int maxPendingBytes;
+    private final ChannelBuffer[] replay;
+    private final String[] replayIds;
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final Random random = new Random();
+    // Held while writing, to keep the order of events the same for all connections. Taken before this, never after.
+    private final Object writeLock = new Object();
+
+    // Guarded by this
+    private final Map<Channel, Connection> connections = new HashMap<Channel, Connection>();
+    private Connection[] snapshot;
+    private long eventCount;
+
+    public EventSourceBroadcaster() {
+        this(DEFAULT_REPLAY_SIZE, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    /**
+     * @param replaySize how many of the latest events to keep for reconnecting clients. 0 keeps none.
+     * @param maxPendingBytes a connection is closed when it has more than this many bytes waiting to be written
+     */
+    public EventSourceBroadcaster(int replaySize, int maxPendingBytes) {
+        this.maxPendingBytes = maxPendingBytes;
+        this.replay = new ChannelBuffer[replaySize];
+        this.replayIds = new String[replaySize];
+    }
+
+    /**
+     * Sends an event to all connections.
+     *
+     * @param event the event name, or null for the default
+     * @param id the event id, or null. Clients can only resume after events with an id.
+     * @param data the data
+     */
+    public void broadcast(String event, String id, String data) {
+        send(EventStreamEncoder.encode(event, id, data), id, true);
+    }
+
+    /**
+     * Sends a comment to all connections, e.g. as a heartbeat that keeps idle connections from timing out. Comments
+     * are not replayed.
+     *
+     * @param comment the comment
+     */
+    public void comment(String comment) {
+        send(EventStreamEncoder.comment(comment), null, false);
+    }
+
+    /**
+     * Starts sending events to a channel, after replaying the events it missed.
+     *
+     * @param channel a channel that has been sent the response headers
+     * @param lastEventId the Last-Event-ID the client sent, or null
+     */
+    public void add(Channel channel, String lastEventId) {
+        Connection connection = new Connection(channel);
+        boolean overflow = false;
+        synchronized (writeLock) {
+            if (lastEventId != null) {
+                List<ChannelBuffer> missed;
+                synchronized (this) {
+                    missed = replayAfter(lastEventId);
+                }
+                for (ChannelBuffer buffer : missed) {
+                    overflow |= !connection.write(buffer);
+                }
+            }
+            if (!overflow) {
+                synchronized (this) {
+                    connections.put(channel, connection);
+                    snapshot = null;
+                }
+            }
+        }
+        if (overflow) {
+            evict(connection);
+        }
+    }
+
+    /**
+     * Stops sending events to a channel, e.g. because it was closed.
+     *
+     * @param channel the channel
+     */
+    public synchronized void remove(Channel channel) {
+        if (connections.remove(channel) != null) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * @return the number of connections receiving events
+     */
+    public synchronized int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @return the number of connections closed because their clients were too slow
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * Closes a random share of the connections, e.g. to move clients to other servers, or to test how they reconnect.
+     *
+     * @param fraction the share to close, from 0 to 1
+     * @return the number of connections closed
+     */
+    public int shed(double fraction) {
+        List<Connection> toClose = new ArrayList<Connection>();
+        synchronized (this) {
+            for (Connection connection : connections.values()) {
+                if (random.nextDouble() < fraction) {
+                    toClose.add(connection);
+                }
+            }
+            for (Connection connection : toClose) {
+                connections.remove(connection.channel);
+            }
+            snapshot = null;
+        }
+        for (Connection connection : toClose) {
+            connection.channel.close();
+        }
+        return toClose.size();
+    }
+
+    /**
+     * Closes all connections.
+     */
+    public void close() {
+        List<Connection> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<Connection>(connections.values());
+            connections.clear();
+            snapshot = null;
+        }
+        for (Connection connection : toClose) {
+            connection.channel.close();
+        }
+    }
+
+    private void send(byte[] bytes, String id, boolean replayable) {
+        ChannelBuffer buffer = ChannelBuffers.directBuffer(bytes.length);
+        buffer.writeBytes(bytes);
+        List<Connection> evicted = null;
+        synchronized (writeLock) {
+            Connection[] current;
+            synchronized (this) {
+                if (replayable) {
+                    remember(buffer, id);
+                }
+                if (snapshot == null) {
+                    snapshot = connections.values().toArray(new Connection[connections.size()]);
+                }
+                current = snapshot;
+            }
+            for (Connection connection : current) {
+                if (!connection.write(buffer)) {
+                    if (evicted == null) {
+                        evicted = new ArrayList<Connection>();
+                    }
+                    evicted.add(connection);
+                }
+            }
+            if (evicted != null) {
+                synchronized (this) {
+                    for (Connection connection : evicted) {
+                        connections.remove(connection.channel);
+                    }
+                    snapshot = null;
+                }
+            }
+        }
+        // Outside the locks, as closing may call back into remove
+        if (evicted != null) {
+            for (Connection connection : evicted) {
+                evict(connection);
+            }
+        }
+    }
+
+    private void remember(ChannelBuffer buffer, String id) {
+        if (replay.length == 0) {
+            return;
+        }
+        int slot = (int) (eventCount % replay.length);
+        replay[slot] = buffer;
+        replayIds[slot] = id;
+        eventCount++;
+    }
+
+    /**
+     * @return the events after the last one with the id, oldest first. Events without an id that followed it are
+     * replayed too, even though the client may have had them.
+     */
+    private List<ChannelBuffer> replayAfter(String id) {
+        List<ChannelBuffer> missed = new ArrayList<ChannelBuffer>();
+        long oldest = Math.max(0, eventCount - replay.length);
+        long next = eventCount;
+        while (next > oldest && !id.equals(replayIds[(int) ((next - 1) % replay.length)])) {
+            next--;
+        }
+        if (next == oldest) {
+            return missed;
+        }
+        for (long i = next; i < eventCount; i++) {
+            missed.add(replay[(int) (i % replay.length)]);
+        }
+        return missed;
+    }
+
+    private void evict(Connection connection) {
+        evictedCount.incrementAndGet();
+        connection.channel.close();
+    }
+
+    private class Connection {
+        private final Channel channel;
+        private final AtomicInteger pendingBytes = new AtomicInteger();
+
+        private Connection(Channel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return false if the connection has too much waiting to be written
+         */
+        private boolean write(ChannelBuffer buffer) {
+            final int length = buffer.readableBytes();
+            if (pendingBytes.addAndGet(length) > maxPendingBytes) {
+                pendingBytes.addAndGet(-length);
+                return false;
+            }
+            // A duplicate has its own reader index, so channels don't interfere with each other
+            ChannelFuture future = channel.write(buffer.duplicate());
+            future.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    pendingBytes.addAndGet(-length);
+                }
+            });
+            return true;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.eventsource.server;
+
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.codec.http.QueryStringDecoder;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+/**
+ * An embeddable HTTP server that streams the events of an {@link EventSourceBroadcaster} to every client that
+ * requests its path:
+ *
+ * <pre>
+ * EventSourceBroadcaster broadcaster = new EventSourceBroadcaster();
+ * EventSourceServer server = new EventSourceServer(8080, "/events", broadcaster).start();
+ * broadcaster.broadcast("tick", "1", "Hello");
+ * ...
+ * server.stop();
+ * </pre>
+ *
+ * The response is close-delimited, and a client's Last-Event-ID header resumes the stream from the broadcaster's
+ * replay ring.
+ */
+public class EventSourceServer {
+    private final int port;
+    private final String path;
+    private final EventSourceBroadcaster broadcaster;
+    private final ChannelGroup channels = new DefaultChannelGroup("eventsource-server");
+    private ServerBootstrap bootstrap;
+
+    /**
+     * @param port the port to listen on
+     * @param path the path of the event stream. Other paths get a 404.
+     * @param broadcaster sends the events
+     */
+    public EventSourceServer(int port, String path, EventSourceBroadcaster broadcaster) {
+        this.port = port;
+        this.path = path;
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * Starts listening.
+     *
+     * @return self
+     */
+    public EventSourceServer start() {
+        bootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool()));
+        bootstrap.setOption("child.tcpNoDelay", true);
+        bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            public ChannelPipeline getPipeline() throws Exception {
+                ChannelPipeline pipeline = Channels.pipeline();
+                pipeline.addLast("decoder", new HttpRequestDecoder());
+                pipeline.addLast("encoder", new HttpResponseEncoder());
+                pipeline.addLast("handler", new EventStreamHandler());
+                return pipeline;
+            }
+        });
+        channels.add(bootstrap.bind(new InetSocketAddress(port)));
+        return this;
+    }
+
+    /**
+     * Closes all connections and stops listening.
+     */
+    public void stop() {
+        broadcaster.close();
+        channels.close().awaitUninterruptibly();
+        bootstrap.releaseExternalResources();
+    }
+
+    private class EventStreamHandler extends SimpleChannelUpstreamHandler {
+        @Override
+        public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e) {
+            channels.add(e.getChannel());
+        }
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+            HttpRequest request = (HttpRequest) e.getMessage();
+            Channel channel = e.getChannel();
+            if (!request.getMethod().equals(HttpMethod.GET) || !new QueryStringDecoder(request.getUri()).getPath().equals(path)) {
+                HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+                response.setHeader(HttpHeaders.Names.CONTENT_LENGTH, 0);
+                channel.write(response).addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+            HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            response.setHeader(HttpHeaders.Names.CONTENT_TYPE, "text/event-stream; charset=utf-8");
+            response.setHeader(HttpHeaders.Names.CACHE_CONTROL, HttpHeaders.Values.NO_CACHE);
+            // The stream has no length - it ends when the connection is closed
+            response.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+            channel.write(response);
+            broadcaster.add(channel, request.getHeader("Last-Event-ID"));
+        }
+
+        @Override
+        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+            broadcaster.remove(e.getChannel());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+            e.getChannel().close();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.github.eventsource.server;
+
+import com.github.eventsource.client.impl.EventStreamEncoder;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelConfig;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.junit.Test;
+
+import java.net.SocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventSourceBroadcasterTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void replaysEventsAfterLastEventId() throws Exception {
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster(10, 1024);
+        broadcaster.broadcast(null, "1", "one");
+        broadcaster.broadcast(null, "2", "two");
+        broadcaster.broadcast(null, "3", "three");
+        FakeChannel channel = new FakeChannel(true);
+
+        broadcaster.add(channel, "1");
+        broadcaster.broadcast(null, "4", "four");
+
+        assertEquals(asList(event("2", "two"), event("3", "three"), event("4", "four")), channel.written);
+    }
+
+    @Test
+    public void sendsOnlyNewEventsWhenLastEventIdHasLeftTheRing() throws Exception {
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster(2, 1024);
+        broadcaster.broadcast(null, "1", "one");
+        broadcaster.broadcast(null, "2", "two");
+        broadcaster.broadcast(null, "3", "three");
+        FakeChannel gone = new FakeChannel(true);
+        FakeChannel oldest = new FakeChannel(true);
+
+        broadcaster.add(gone, "1");
+        broadcaster.add(oldest, "2");
+        broadcaster.broadcast(null, "4", "four");
+
+        assertEquals(asList(event("4", "four")), gone.written);
+        assertEquals(asList(event("3", "three"), event("4", "four")), oldest.written);
+    }
+
+    @Test
+    public void doesNotReplayComments() throws Exception {
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster(10, 1024);
+        broadcaster.broadcast(null, "1", "one");
+        broadcaster.comment("heartbeat");
+        broadcaster.broadcast(null, "2", "two");
+        FakeChannel channel = new FakeChannel(true);
+
+        broadcaster.add(channel, "1");
+
+        assertEquals(asList(event("2", "two")), channel.written);
+    }
+
+    @Test
+    public void evictsConnectionWithTooManyPendingBytes() throws Exception {
+        int eventLength = EventStreamEncoder.encode(null, "1", "one").length;
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster(10, eventLength * 2);
+        FakeChannel fast = new FakeChannel(true);
+        FakeChannel slow = new FakeChannel(false);
+        broadcaster.add(fast, null);
+        broadcaster.add(slow, null);
+
+        broadcaster.broadcast(null, "1", "one");
+        broadcaster.broadcast(null, "2", "two");
+        assertFalse(slow.closed);
+        broadcaster.broadcast(null, "3", "thr");
+
+        assertTrue(slow.closed);
+        assertFalse(fast.closed);
+        assertEquals(1, broadcaster.getEvictedCount());
+        assertEquals(1, broadcaster.getConnectionCount());
+        assertEquals(2, slow.written.size());
+
+        broadcaster.broadcast(null, "4", "fou");
+        assertEquals(4, fast.written.size());
+        assertEquals(2, slow.written.size());
+        assertEquals(1, broadcaster.getEvictedCount());
+    }
+
+    @Test
+    public void keepsConnectionThatCatchesUp() throws Exception {
+        int eventLength = EventStreamEncoder.encode(null, "1", "one").length;
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster(10, eventLength * 2);
+        FakeChannel channel = new FakeChannel(false);
+        broadcaster.add(channel, null);
+
+        broadcaster.broadcast(null, "1", "one");
+        broadcaster.broadcast(null, "2", "two");
+        channel.completeWrites();
+        broadcaster.broadcast(null, "3", "thr");
+
+        assertFalse(channel.closed);
+        assertEquals(0, broadcaster.getEvictedCount());
+    }
+
+    @Test
+    public void evictsConnectionThatCantTakeItsReplay() throws Exception {
+        int eventLength = EventStreamEncoder.encode(null, "1", "one").length;
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster(10, eventLength * 2);
+        broadcaster.broadcast(null, "1", "one");
+        broadcaster.broadcast(null, "2", "two");
+        broadcaster.broadcast(null, "3", "thr");
+        broadcaster.broadcast(null, "4", "fou");
+        FakeChannel channel = new FakeChannel(false);
+
+        broadcaster.add(channel, "1");
+
+        assertTrue(channel.closed);
+        assertEquals(0, broadcaster.getConnectionCount());
+        assertEquals(1, broadcaster.getEvictedCount());
+    }
+
+    @Test
+    public void shedsShareOfConnections() throws Exception {
+        EventSourceBroadcaster broadcaster = new EventSourceBroadcaster();
+        List<FakeChannel> channels = new ArrayList<FakeChannel>();
+        for (int i = 0; i < 100; i++) {
+            FakeChannel channel = new FakeChannel(true);
+            channels.add(channel);
+            broadcaster.add(channel, null);
+        }
+
+        assertEquals(0, broadcaster.shed(0));
+        assertEquals(100, broadcaster.getConnectionCount());
+
+        int shed = broadcaster.shed(0.5);
+        assertTrue("Shed " + shed, shed > 0 && shed < 100);
+        assertEquals(100 - shed, broadcaster.getConnectionCount());
+        assertEquals(shed, closedCount(channels));
+
+        broadcaster.broadcast(null, "1", "one");
+        for (FakeChannel channel : channels) {
+            assertEquals(channel.closed ? 0 : 1, channel.written.size());
+        }
+
+        assertEquals(100 - shed, broadcaster.shed(1));
+        assertEquals(0, broadcaster.getConnectionCount());
+        assertEquals(100, closedCount(channels));
+        assertEquals(0, broadcaster.getEvictedCount());
+    }
+
+    private static String event(String id, String data) {
+        return new String(EventStreamEncoder.encode(null, id, data), UTF_8);
+    }
+
+    private static int closedCount(List<FakeChannel> channels) {
+        int closed = 0;
+        for (FakeChannel channel : channels) {
+            if (channel.closed) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Records what is written to it. A fast channel completes each write at once, a slow one only when told to.
+     */
+    private static class FakeChannel implements Channel {
+        private final boolean fast;
+        private final List<String> written = new ArrayList<String>();
+        private final List<ChannelFuture> pendingWrites = new ArrayList<ChannelFuture>();
+        private boolean closed;
+
+        FakeChannel(boolean fast) {
+            this.fast = fast;
+        }
+
+        void completeWrites() {
+            for (ChannelFuture future : pendingWrites) {
+                future.setSuccess();
+            }
+            pendingWrites.clear();
+        }
+
+        @Override
+        public ChannelFuture write(Object message) {
+            written.add(((ChannelBuffer) message).toString(UTF_8));
+            ChannelFuture future = new DefaultChannelFuture(this, false);
+            if (fast) {
+                future.setSuccess();
+            } else {
+                pendingWrites.add(future);
+            }
+            return future;
+        }
+
+        @Override
+        public ChannelFuture write(Object message, SocketAddress remoteAddress) {
+            return write(message);
+        }
+
+        @Override
+        public ChannelFuture close() {
+            closed = true;
+            ChannelFuture future = new DefaultChannelFuture(this, false);
+            future.setSuccess();
+            return future;
+        }
+
+        @Override
+        public Integer getId() {
+            return System.identityHashCode(this);
+        }
+
+        @Override
+        public ChannelFactory getFactory() {
+            return null;
+        }
+
+        @Override
+        public Channel getParent() {
+            return null;
+        }
+
+        @Override
+        public ChannelConfig getConfig() {
+            return null;
+        }
+
+        @Override
+        public ChannelPipeline getPipeline() {
+            return null;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public boolean isBound() {
+            return !closed;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed;
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public ChannelFuture bind(SocketAddress localAddress) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ChannelFuture connect(SocketAddress remoteAddress) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ChannelFuture disconnect() {
+            return close();
+        }
+
+        @Override
+        public ChannelFuture unbind() {
+            return close();
+        }
+
+        @Override
+        public ChannelFuture getCloseFuture() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getInterestOps() {
+            return OP_READ;
+        }
+
+        @Override
+        public boolean isReadable() {
+            return true;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return true;
+        }
+
+        @Override
+        public ChannelFuture setInterestOps(int interestOps) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ChannelFuture setReadable(boolean readable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compareTo(Channel other) {
+            return getId().compareTo(other.getId());
+        }
+    }
+}
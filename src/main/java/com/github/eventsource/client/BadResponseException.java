@@ -0,0 +1,22 @@
+package com.github.eventsource.client;
+
+/**
+ * The server answered with something other than an event stream: a status other than 200, or the wrong
+ * Content-Type. An EventSource reconnects after it like after any other error, as the server may recover, but it
+ * usually means the stream is gone for good.
+ */
+public class BadResponseException extends EventSourceException {
+    private final int status;
+
+    public BadResponseException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * @return the status code of the response
+     */
+    public int getStatus() {
+        return status;
+    }
+}
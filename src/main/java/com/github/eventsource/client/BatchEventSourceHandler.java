@@ -0,0 +1,17 @@
+package com.github.eventsource.client;
+
+import java.util.List;
+
+/**
+ * An {@link EventSourceHandler} that receives the events from a burst of network reads in one call.
+ * Only used when the EventSource is created with a batching dispatcher, e.g. by
+ * {@link EventSourceClient#batchingDispatcher(EventSourceHandler, int, long)}.
+ */
+public interface BatchEventSourceHandler extends EventSourceHandler {
+    /**
+     * @param events the event names, in the order they were received
+     * @param messages the messages - <code>messages.get(i)</code> is the message of <code>events.get(i)</code>
+     * @throws Exception passed to {@link #onError(Throwable)}. The rest of the batch is not redelivered.
+     */
+    void onMessages(List<String> events, List<MessageEvent> messages) throws Exception;
+}
@@ -0,0 +1,23 @@
+package com.github.eventsource.client;
+
+/**
+ * Keeps the id of the last event handled by an EventSource, so that a new process can resume the stream where the
+ * previous one stopped.
+ *
+ * @see FileCheckpointStore
+ * @see EventSource#setCheckpointStore(CheckpointStore)
+ */
+public interface CheckpointStore {
+    /**
+     * @return the last saved event id, or null if there is none
+     */
+    String load();
+
+    /**
+     * Called after each event with an id has been handled, from the thread that delivered it. Implementations should
+     * make this cheap, e.g. by writing the latest id in the background.
+     *
+     * @param lastEventId the id of the event
+     */
+    void save(String lastEventId);
+}
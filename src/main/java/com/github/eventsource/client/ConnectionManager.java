@@ -0,0 +1,301 @@
+package com.github.eventsource.client;
+
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.DefaultChannelFuture;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps track of the connections made to each origin (scheme, host and port) by the EventSources of an
+ * {@link EventSourceClient}. It resolves each origin's address once and reuses it for all connections and
+ * reconnects until it expires, and it limits the number of concurrent sockets per origin: connects beyond the
+ * limit wait until another connection to the same origin is closed.
+ *
+ * Every event stream needs a connection of its own - HTTP/1.1 can't interleave several streaming responses on
+ * one socket - so the limit caps the number of streams per origin that are connected at the same time.
+ *
+ * Connects are made from I/O threads (when a connection closes and a queued connect takes its place) and from
+ * the timer thread (reconnects), neither of which may block. Addresses are therefore looked up on a resolver
+ * executor, and a connect that needs a lookup is made from there once it is done.
+ */
+public class ConnectionManager {
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    public static final long DEFAULT_ADDRESS_TTL_MILLIS = 60000;
+
+    private final int maxConnectionsPerOrigin;
+    private final long addressTtlMillis;
+    private final Map<String, Origin> origins = new HashMap<String, Origin>();
+    private final Executor resolver;
+    private final boolean ownsResolver;
+
+    /**
+     * Creates a manager that looks addresses up on daemon threads of its own, which stop when they have been idle
+     * for a minute, or when the manager is shut down.
+     */
+    public ConnectionManager(int maxConnectionsPerOrigin, long addressTtlMillis) {
+        this(maxConnectionsPerOrigin, addressTtlMillis, Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "eventsource-resolver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * @param maxConnectionsPerOrigin the most connections to one origin at a time, or {@link #UNLIMITED}
+     * @param addressTtlMillis how long a looked up address is used before it is looked up again
+     * @param resolver looks up addresses - DNS lookups block, so this must not be an I/O or timer thread. It is not
+     * shut down by {@link #shutdown()}.
+     */
+    public ConnectionManager(int maxConnectionsPerOrigin, long addressTtlMillis, Executor resolver) {
+        this(maxConnectionsPerOrigin, addressTtlMillis, resolver, false);
+    }
+
+    private ConnectionManager(int maxConnectionsPerOrigin, long addressTtlMillis, Executor resolver, boolean ownsResolver) {
+        if (maxConnectionsPerOrigin < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerOrigin must be at least 1: " + maxConnectionsPerOrigin);
+        }
+        this.maxConnectionsPerOrigin = maxConnectionsPerOrigin;
+        this.addressTtlMillis = addressTtlMillis;
+        this.resolver = resolver;
+        this.ownsResolver = ownsResolver;
+    }
+
+    /**
+     * Connects, or queues the connect until there is room for another connection to the origin. A queued connect,
+     * or one that waits for the origin's address to be looked up, returns a future without a channel.
+     *
+     * @param bootstrap bootstrap for the connection
+     * @param uri where to connect
+     * @return a future that completes when the connection has been made (or has failed)
+     */
+    public ChannelFuture connect(final ClientBootstrap bootstrap, URI uri) {
+        final String key = origin(uri);
+        synchronized (this) {
+            Origin origin = getOrigin(key, uri);
+            if (origin.connections >= maxConnectionsPerOrigin) {
+                PendingConnect pending = new PendingConnect(bootstrap, new DefaultChannelFuture(null, true));
+                origin.pending.add(pending);
+                return pending.future;
+            }
+            origin.connections++;
+        }
+        return connectNow(bootstrap, key);
+    }
+
+    /**
+     * Drops the bootstrap's connects that are waiting for a free connection to the origin, and cancels their futures.
+     * Called when an EventSource is closed, so that it doesn't connect later.
+     *
+     * @param bootstrap bootstrap of the connects
+     * @param uri where they would have connected
+     */
+    public void cancel(ClientBootstrap bootstrap, URI uri) {
+        List<PendingConnect> cancelled = new ArrayList<PendingConnect>();
+        synchronized (this) {
+            Origin origin = origins.get(origin(uri));
+            if (origin == null) {
+                return;
+            }
+            for (Iterator<PendingConnect> i = origin.pending.iterator(); i.hasNext(); ) {
+                PendingConnect pending = i.next();
+                if (pending.bootstrap == bootstrap) {
+                    i.remove();
+                    cancelled.add(pending);
+                }
+            }
+        }
+        // Outside the lock, as the futures' listeners may connect again
+        for (PendingConnect pending : cancelled) {
+            pending.future.cancel();
+        }
+    }
+
+    /**
+     * Stops the threads that look up addresses, if the manager created them. Connects that need a lookup fail
+     * afterwards.
+     */
+    public void shutdown() {
+        if (ownsResolver) {
+            ((ExecutorService) resolver).shutdown();
+        }
+    }
+
+    /**
+     * @return the number of open (or opening) connections for each origin, keyed by scheme://host:port
+     */
+    public synchronized Map<String, Integer> getConnectionCounts() {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Map.Entry<String, Origin> origin : origins.entrySet()) {
+            counts.put(origin.getKey(), origin.getValue().connections);
+        }
+        return counts;
+    }
+
+    /**
+     * @param uri a URI on the origin
+     * @return the number of connects waiting for a free connection to the origin
+     */
+    public synchronized int getPendingCount(URI uri) {
+        Origin origin = origins.get(origin(uri));
+        return origin == null ? 0 : origin.pending.size();
+    }
+
+    static String origin(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port(uri);
+    }
+
+    static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private Origin getOrigin(String key, URI uri) {
+        Origin origin = origins.get(key);
+        if (origin == null) {
+            origin = new Origin(uri.getHost(), port(uri));
+            origins.put(key, origin);
+        }
+        return origin;
+    }
+
+    private ChannelFuture connectNow(final ClientBootstrap bootstrap, final String key) {
+        final Origin origin;
+        synchronized (this) {
+            origin = origins.get(key);
+        }
+        InetSocketAddress address = cachedAddress(origin);
+        if (address != null) {
+            return connectNow(bootstrap, key, address);
+        }
+        final ChannelFuture future = new DefaultChannelFuture(null, false);
+        try {
+            resolver.execute(new Runnable() {
+                @Override
+                public void run() {
+                    chain(connectNow(bootstrap, key, resolve(origin)), future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down
+            release(key);
+            future.setFailure(e);
+        }
+        return future;
+    }
+
+    private ChannelFuture connectNow(ClientBootstrap bootstrap, final String key, InetSocketAddress address) {
+        ChannelFuture future = bootstrap.connect(address);
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    future.getChannel().getCloseFuture().addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            release(key);
+                        }
+                    });
+                } else {
+                    release(key);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return the origin's address, or null if it has to be looked up
+     */
+    private InetSocketAddress cachedAddress(Origin origin) {
+        // Doesn't wait for a lookup in progress
+        InetSocketAddress address = origin.address;
+        if (address == null || address.isUnresolved() || System.currentTimeMillis() - origin.resolvedAt > addressTtlMillis) {
+            return null;
+        }
+        return address;
+    }
+
+    private InetSocketAddress resolve(Origin origin) {
+        // Connects to the same origin wait for one lookup, other origins aren't held up by it
+        synchronized (origin) {
+            InetSocketAddress address = cachedAddress(origin);
+            if (address == null) {
+                address = new InetSocketAddress(origin.host, origin.port);
+                origin.resolvedAt = System.currentTimeMillis();
+                origin.address = address;
+            }
+            return address;
+        }
+    }
+
+    private static void chain(ChannelFuture from, final ChannelFuture to) {
+        from.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    to.setSuccess();
+                } else {
+                    to.setFailure(future.getCause());
+                }
+            }
+        });
+    }
+
+    private void release(String key) {
+        PendingConnect next;
+        synchronized (this) {
+            Origin origin = origins.get(key);
+            next = origin.pending.poll();
+            if (next == null) {
+                origin.connections--;
+                return;
+            }
+        }
+        chain(connectNow(next.bootstrap, key), next.future);
+    }
+
+    private static class Origin {
+        final String host;
+        final int port;
+        final Queue<PendingConnect> pending = new LinkedList<PendingConnect>();
+        int connections;
+        // Written while holding the Origin, read without it
+        volatile InetSocketAddress address;
+        volatile long resolvedAt;
+
+        Origin(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+
+    private static class PendingConnect {
+        final ClientBootstrap bootstrap;
+        final ChannelFuture future;
+
+        PendingConnect(ClientBootstrap bootstrap, ChannelFuture future) {
+            this.bootstrap = bootstrap;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.eventsource.client;
+
+/**
+ * Decides which events an EventSource hands to its handler. The filter is asked when an event has been parsed,
+ * before its data is decoded, so events that are filtered out cost nothing beyond parsing. Their ids still count
+ * as the last event id when reconnecting.
+ *
+ * @see EventSource#setEventFilter(EventFilter)
+ * @see EventRouter
+ */
+public interface EventFilter {
+    /**
+     * Called on the I/O thread for each event, so it must be fast and must not block.
+     *
+     * @param event the event name - "message" if the event had none
+     * @return true to deliver the event, false to drop it
+     */
+    boolean accepts(String event);
+}
@@ -0,0 +1,156 @@
+package com.github.eventsource.client;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Routes events to the handlers registered for their event name, like <code>addEventListener</code> in a browser.
+ * Use it as the EventSource's handler and as its {@link EventFilter}, so that events nobody listens to are dropped
+ * before their data is decoded:
+ *
+ * <pre>
+ * EventRouter router = new EventRouter()
+ *         .addEventListener("trade", tradeHandler)
+ *         .addEventListener("quote", quoteHandler, quoteExecutor);
+ * EventSource es = client.eventSource(uri, router).setEventFilter(router);
+ * </pre>
+ *
+ * A handler registered without an executor is called on the thread that delivers the event. A handler registered
+ * with an executor gets the event on that executor, as a copy of the message. Listeners can be added and removed
+ * at any time. Every listener receives onConnect and onError, once per registration.
+ */
+public class EventRouter implements EventSourceHandler, EventFilter {
+    private final ConcurrentMap<String, List<Listener>> listeners = new ConcurrentHashMap<String, List<Listener>>();
+    private final List<Listener> allListeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * @param event the event name to listen to - "message" for events without a name
+     * @param handler receives the events, on the thread that delivers them
+     * @return self
+     */
+    public EventRouter addEventListener(String event, EventSourceHandler handler) {
+        return addEventListener(event, handler, null);
+    }
+
+    /**
+     * @param event the event name to listen to - "message" for events without a name
+     * @param handler receives the events
+     * @param executor where the handler is called, or null to call it on the thread that delivers the events
+     * @return self
+     */
+    public synchronized EventRouter addEventListener(String event, EventSourceHandler handler, Executor executor) {
+        Listener listener = new Listener(handler, executor);
+        List<Listener> eventListeners = listeners.get(event);
+        if (eventListeners == null) {
+            eventListeners = new CopyOnWriteArrayList<Listener>();
+            listeners.put(event, eventListeners);
+        }
+        eventListeners.add(listener);
+        allListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Removes all registrations of a handler for an event name.
+     *
+     * @param event the event name
+     * @param handler the handler
+     * @return self
+     */
+    public synchronized EventRouter removeEventListener(String event, EventSourceHandler handler) {
+        List<Listener> eventListeners = listeners.get(event);
+        if (eventListeners == null) {
+            return this;
+        }
+        for (Listener listener : eventListeners) {
+            if (listener.handler == handler) {
+                eventListeners.remove(listener);
+                allListeners.remove(listener);
+            }
+        }
+        if (eventListeners.isEmpty()) {
+            listeners.remove(event);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean accepts(String event) {
+        return listeners.containsKey(event);
+    }
+
+    @Override
+    public void onConnect() {
+        for (final Listener listener : allListeners) {
+            listener.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        listener.handler.onConnect();
+                    } catch (Exception e) {
+                        listener.handler.onError(e);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onMessage(final String event, MessageEvent message) {
+        List<Listener> eventListeners = listeners.get(event);
+        if (eventListeners == null) {
+            return;
+        }
+        for (final Listener listener : eventListeners) {
+            // The delivering dispatcher may recycle the message as soon as this returns
+            final MessageEvent listenerMessage = listener.executor == null ? message : message.copy();
+            listener.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        listener.handler.onMessage(event, listenerMessage);
+                    } catch (Exception e) {
+                        listener.handler.onError(e);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+        for (final Listener listener : allListeners) {
+            listener.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        listener.handler.onError(t);
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        }
+    }
+
+    private static class Listener {
+        private final EventSourceHandler handler;
+        private final Executor executor;
+
+        private Listener(EventSourceHandler handler, Executor executor) {
+            this.handler = handler;
+            this.executor = executor;
+        }
+
+        private void execute(Runnable runnable) {
+            if (executor == null) {
+                runnable.run();
+            } else {
+                executor.execute(runnable);
+            }
+        }
+    }
+}
@@ -1,24 +1,26 @@
 package com.github.eventsource.client;
 
 import com.github.eventsource.client.impl.AsyncEventSourceHandler;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.MessageEventPool;
 import com.github.eventsource.client.impl.netty.EventSourceChannelHandler;
+import com.github.eventsource.client.journal.JournalWriter;
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
-import org.jboss.netty.handler.codec.frame.DelimiterBasedFrameDecoder;
-import org.jboss.netty.handler.codec.frame.Delimiters;
 import org.jboss.netty.handler.codec.http.HttpRequestEncoder;
-import org.jboss.netty.handler.codec.string.StringDecoder;
+import org.jboss.netty.handler.ssl.SslHandler;
+import org.jboss.netty.handler.timeout.ReadTimeoutHandler;
+import org.jboss.netty.util.Timer;
 
-import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-public class EventSource  {
+public class EventSource implements EventStream {
     public static final long DEFAULT_RECONNECTION_TIME_MILLIS = 2000;
 
     public static final int CONNECTING = 0;
@@ -29,6 +31,7 @@ public class EventSource  {
     private final EventSourceChannelHandler clientHandler;
 
     private int readyState;
+    private volatile long readTimeoutMillis;
 
     /**
      * Creates a new <a href="http://dev.w3.org/html5/eventsource/">EventSource</a> client. The client will reconnect on 
@@ -37,6 +40,10 @@ public class EventSource  {
      *
      * For sample usage, see examples at <a href="https://github.com/aslakhellesoy/eventsource-java/tree/master/src/test/java/com/github/eventsource/client">GitHub</a>.
      * 
+     * The I/O and timer threads come from a default {@link EventSourceClient}, created with the first EventSource
+     * made this way and shared by all of them for the life of the process. Create EventSources from a client of
+     * your own to control those threads and release them.
+     *
      * @param executor the executor that will receive events
      * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
      * @param uri where to connect
@@ -44,20 +51,26 @@ public class EventSource  {
      * @see #close()
      */
     public EventSource(Executor executor, long reconnectionTimeMillis, final URI uri, EventSourceHandler eventSourceHandler) {
-        bootstrap = new ClientBootstrap(
-                new NioClientSocketChannelFactory(
-                        Executors.newSingleThreadExecutor(),
-                        Executors.newSingleThreadExecutor()));
-        bootstrap.setOption("remoteAddress", new InetSocketAddress(uri.getHost(), uri.getPort()));
+        this(DefaultClient.INSTANCE, reconnectionTimeMillis, uri, new AsyncEventSourceHandler(executor, eventSourceHandler));
+    }
+
+    EventSource(EventSourceClient client, long reconnectionTimeMillis, final URI uri, EventDispatcher dispatcher) {
+        bootstrap = new ClientBootstrap(client.getChannelFactory());
 
-        clientHandler = new EventSourceChannelHandler(new AsyncEventSourceHandler(executor, eventSourceHandler), reconnectionTimeMillis, bootstrap, uri);
+        clientHandler = new EventSourceChannelHandler(dispatcher, reconnectionTimeMillis, bootstrap, uri, client.getTimer(), client.getConnectionManager());
+        dispatcher.setFlowControl(clientHandler);
 
+        final SslEngineFactory sslEngineFactory = "https".equalsIgnoreCase(uri.getScheme()) ? client.getSslEngineFactory() : null;
+        final Timer timer = client.getTimer();
         bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
             public ChannelPipeline getPipeline() throws Exception {
                 ChannelPipeline pipeline = Channels.pipeline();
-                pipeline.addLast("line", new DelimiterBasedFrameDecoder(Integer.MAX_VALUE, Delimiters.lineDelimiter()));
-                pipeline.addLast("string", new StringDecoder());
-
+                if (readTimeoutMillis > 0) {
+                    pipeline.addLast("timeout", new ReadTimeoutHandler(timer, readTimeoutMillis, TimeUnit.MILLISECONDS));
+                }
+                if (sslEngineFactory != null) {
+                    pipeline.addLast("ssl", new SslHandler(sslEngineFactory.createSslEngine(uri.getHost(), ConnectionManager.port(uri))));
+                }
                 pipeline.addLast("encoder", new HttpRequestEncoder());
                 pipeline.addLast("es-handler", clientHandler);
                 return pipeline;
@@ -73,9 +86,133 @@ public class EventSource  {
         this(Executors.newSingleThreadExecutor(), DEFAULT_RECONNECTION_TIME_MILLIS, uri, eventSourceHandler);
     }
 
+    /**
+     * Set how long to wait before reconnecting after a lost connection. The default waits the reconnection time
+     * every time. Whatever the policy, the EventSource never waits less than the reconnection time, which the
+     * server can change with the <code>retry</code> field.
+     *
+     * @param reconnectionPolicy the policy, e.g. {@link ExponentialBackoff}
+     * @return self
+     */
+    public EventSource setReconnectionPolicy(ReconnectionPolicy reconnectionPolicy) {
+        clientHandler.setReconnectionPolicy(reconnectionPolicy);
+        return this;
+    }
+
+    /**
+     * Treat a connection as dead if nothing at all is read from it for a while, and reconnect with the last event id.
+     * This detects connections that were dropped silently, e.g. by a NAT gateway or load balancer, which would
+     * otherwise never be closed. The server should send something - a comment line will do - more often than the
+     * timeout when it has no events. Reads paused by a bounded dispatcher don't count. Call this before connecting.
+     *
+     * @param readTimeoutMillis the longest time without any bytes from the server, 0 to wait forever (the default)
+     * @return self
+     */
+    public EventSource setReadTimeoutMillis(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Resume the stream from the id saved in the checkpoint store, and save the id of each event once the handler has
+     * returned from it. Use a store that survives restarts, e.g. a {@link FileCheckpointStore}, to continue where
+     * the previous process stopped. Call this before connecting.
+     *
+     * @param checkpointStore keeps the last event id
+     * @return self
+     */
+    public EventSource setCheckpointStore(CheckpointStore checkpointStore) {
+        clientHandler.setCheckpointStore(checkpointStore);
+        return this;
+    }
+
+    /**
+     * Report what this EventSource does - bytes read, events parsed and delivered, queue depth, time spent in the
+     * handler and reconnects - to metrics, e.g. a {@link JmxEventSourceMetrics}. Call this before connecting.
+     *
+     * @param metrics receives measurements
+     * @return self
+     */
+    public EventSource setMetrics(EventSourceMetrics metrics) {
+        clientHandler.setMetrics(metrics);
+        return this;
+    }
+
+    /**
+     * Deliver messages with their data as UTF-8 bytes, decoded only when {@link MessageEvent#getData()} is called.
+     * Handlers that forward the payload can use {@link MessageEvent#getDataBytes()} and skip decoding altogether.
+     * The {@link MessageEvent#data} field is null in this mode. Call this before connecting.
+     *
+     * @param rawData true to deliver raw data
+     * @return self
+     */
+    public EventSource setRawData(boolean rawData) {
+        clientHandler.setRawData(rawData);
+        return this;
+    }
+
+    /**
+     * Reuse MessageEvents instead of creating one per event. A message is recycled as soon as the handler's
+     * onMessage (or a {@link BatchEventSourceHandler}'s onMessages) returns, so a handler that keeps a message, or
+     * hands it to another thread, must keep {@link MessageEvent#copy()} instead. The message fields are null - use
+     * the getters. Call this before connecting.
+     *
+     * @param poolSize the number of idle messages to keep for reuse, 0 to create a new message for each event
+     * @return self
+     */
+    public EventSource setMessagePoolSize(int poolSize) {
+        clientHandler.setMessagePool(poolSize == 0 ? null : new MessageEventPool(poolSize));
+        return this;
+    }
+
+    /**
+     * Append each event to a journal as it is parsed, before it is handed to the handler. The journal can be replayed
+     * later with a {@link com.github.eventsource.client.journal.JournalReader}. Failures to write the journal are
+     * passed to the handler's onError, and the event is still handled. Call this before connecting, and close the
+     * journal after closing the EventSource. A journal can only be used by one EventSource.
+     *
+     * @param journal the journal, or null to stop journaling
+     * @return self
+     * @throws IllegalStateException if the journal is already used by another EventSource
+     */
+    public EventSource setJournal(JournalWriter journal) {
+        clientHandler.setJournal(journal);
+        return this;
+    }
+
+    /**
+     * Only hand the events a filter accepts to the handler. The others are dropped as soon as they have been parsed,
+     * without decoding their data or queueing them for the handler. Call this before connecting.
+     *
+     * @param eventFilter the filter, e.g. an {@link EventRouter}, or null to hand over all events
+     * @return self
+     */
+    public EventSource setEventFilter(EventFilter eventFilter) {
+        clientHandler.setEventFilter(eventFilter);
+        return this;
+    }
+
+    /**
+     * Connect to the server. If the {@link EventSourceClient}'s limit of connections to the server's origin has been
+     * reached, the connect waits until one of them is closed. The server's address is looked up in the background.
+     * A connect that waits for either returns a future without a channel.
+     *
+     * @return a future that completes when the connection has been made
+     */
     public ChannelFuture connect() {
         readyState = CONNECTING;
-        return bootstrap.connect();
+        return clientHandler.connect();
+    }
+
+    /**
+     * Connect to the server, like {@link #connect()}.
+     *
+     * @return self
+     */
+    @Override
+    public EventSource open() {
+        connect();
+        return this;
     }
 
     /**
@@ -83,6 +220,7 @@ public class EventSource  {
      *
      * @return self
      */
+    @Override
     public EventSource close() {
         clientHandler.close();
         return this;
@@ -94,8 +232,16 @@ public class EventSource  {
      * @return self
      * @throws InterruptedException if waiting was interrupted
      */
+    @Override
     public EventSource join() throws InterruptedException {
         clientHandler.join();
         return this;
     }
+
+    /**
+     * Created on first use, so that applications with clients of their own never start its threads.
+     */
+    private static class DefaultClient {
+        static final EventSourceClient INSTANCE = new EventSourceClient();
+    }
 }
@@ -0,0 +1,270 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.AsyncEventSourceHandler;
+import com.github.eventsource.client.impl.BlockingDispatcher;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.PartitionedDispatcher;
+import com.github.eventsource.client.impl.RingBufferDispatcher;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+
+import java.io.File;
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Holds the resources that can be shared between many {@link EventSource}s: the Netty boss and worker threads,
+ * the timer used for reconnects and the executor that delivers events to handlers. Creating an EventSource
+ * from a client costs a socket, not a handful of threads.
+ *
+ * <pre>
+ * EventSourceClient client = new EventSourceClient();
+ * EventSource es = client.eventSource(URI.create("http://localhost:8090/es"), handler);
+ * es.connect();
+ * ...
+ * es.close().join();
+ * client.shutdown();
+ * </pre>
+ *
+ * @see #shutdown()
+ */
+public class EventSourceClient {
+    public static final int DEFAULT_WORKER_COUNT = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final ExecutorService bossExecutor;
+    private final ExecutorService workerExecutor;
+    private final ExecutorService dispatchExecutor;
+    private final NioClientSocketChannelFactory channelFactory;
+    private final Timer timer;
+    private final ConnectionManager connectionManager;
+    private SslEngineFactory sslEngineFactory;
+    private ScheduledExecutorService checkpointExecutor;
+
+    /**
+     * Creates a client with {@link #DEFAULT_WORKER_COUNT} I/O workers and a single thread delivering events
+     * to all handlers.
+     */
+    public EventSourceClient() {
+        this(DEFAULT_WORKER_COUNT, Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * @param workerCount number of I/O threads shared by all EventSources created from this client
+     * @param dispatchExecutor the default executor that will receive events. It is shut down by {@link #shutdown()}.
+     */
+    public EventSourceClient(int workerCount, ExecutorService dispatchExecutor) {
+        this(workerCount, dispatchExecutor, ConnectionManager.UNLIMITED);
+    }
+
+    /**
+     * @param workerCount number of I/O threads shared by all EventSources created from this client
+     * @param dispatchExecutor the default executor that will receive events. It is shut down by {@link #shutdown()}.
+     * @param maxConnectionsPerOrigin the maximum number of concurrent connections to each scheme, host and port.
+     * Further connects wait until a connection is closed.
+     */
+    public EventSourceClient(int workerCount, ExecutorService dispatchExecutor, int maxConnectionsPerOrigin) {
+        this.bossExecutor = Executors.newCachedThreadPool();
+        this.workerExecutor = Executors.newCachedThreadPool();
+        this.dispatchExecutor = dispatchExecutor;
+        this.channelFactory = new NioClientSocketChannelFactory(bossExecutor, workerExecutor, workerCount);
+        this.timer = new HashedWheelTimer();
+        this.connectionManager = new ConnectionManager(maxConnectionsPerOrigin, ConnectionManager.DEFAULT_ADDRESS_TTL_MILLIS);
+    }
+
+    /**
+     * Creates a new EventSource that shares this client's threads and delivers events on its dispatch executor.
+     *
+     * @param uri where to connect
+     * @param eventSourceHandler receives events
+     * @return a new EventSource, not yet connected
+     */
+    public EventSource eventSource(URI uri, EventSourceHandler eventSourceHandler) {
+        return eventSource(dispatchExecutor, EventSource.DEFAULT_RECONNECTION_TIME_MILLIS, uri, eventSourceHandler);
+    }
+
+    /**
+     * Creates a new EventSource that shares this client's threads.
+     *
+     * @param executor the executor that will receive events
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param eventSourceHandler receives events
+     * @return a new EventSource, not yet connected
+     */
+    public EventSource eventSource(Executor executor, long reconnectionTimeMillis, URI uri, EventSourceHandler eventSourceHandler) {
+        return eventSource(reconnectionTimeMillis, uri, new AsyncEventSourceHandler(executor, eventSourceHandler));
+    }
+
+    /**
+     * Creates a new EventSource that shares this client's threads and delivers events through the given dispatcher.
+     *
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param dispatcher hands events over to the handler, e.g. {@link #batchingDispatcher(EventSourceHandler, int, long)}
+     * @return a new EventSource, not yet connected
+     */
+    public EventSource eventSource(long reconnectionTimeMillis, URI uri, EventDispatcher dispatcher) {
+        return new EventSource(this, reconnectionTimeMillis, uri, dispatcher);
+    }
+
+    /**
+     * Creates a dispatcher that delivers the events from each network read together, as one task on this client's
+     * dispatch executor. The handler may implement {@link BatchEventSourceHandler} to receive them in one call.
+     *
+     * @param eventSourceHandler receives events
+     * @param maxBatchSize a batch is delivered as soon as it has this many messages
+     * @param maxLingerMillis how long an incomplete batch may wait for more network reads. 0 delivers it at the
+     * end of each read.
+     * @return a dispatcher for {@link #eventSource(long, URI, EventDispatcher)}
+     */
+    public EventDispatcher batchingDispatcher(EventSourceHandler eventSourceHandler, int maxBatchSize, long maxLingerMillis) {
+        return new AsyncEventSourceHandler(dispatchExecutor, eventSourceHandler, maxBatchSize, maxLingerMillis, timer);
+    }
+
+    /**
+     * Creates a dispatcher that stops reading from the connection while the handler is behind, instead of
+     * queueing an unbounded number of events on this client's dispatch executor.
+     *
+     * @param eventSourceHandler receives events
+     * @param highWatermark reading is paused when this many messages are waiting to be delivered
+     * @param lowWatermark reading is resumed when no more than this many messages are waiting to be delivered
+     * @return a dispatcher for {@link #eventSource(long, URI, EventDispatcher)}
+     * @see AsyncEventSourceHandler for combining batching and bounded dispatch
+     */
+    public EventDispatcher boundedDispatcher(EventSourceHandler eventSourceHandler, int highWatermark, int lowWatermark) {
+        return new AsyncEventSourceHandler(dispatchExecutor, eventSourceHandler, 1, 0, timer, highWatermark, lowWatermark);
+    }
+
+    NioClientSocketChannelFactory getChannelFactory() {
+        return channelFactory;
+    }
+
+    Executor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * Creates a dispatcher that hands events to a dedicated thread through a preallocated ring buffer, for the
+     * lowest delivery latency. The dispatcher's thread must be stopped with
+     * {@link RingBufferDispatcher#shutdown()} after the EventSource is closed.
+     *
+     * @param eventSourceHandler receives events, on the dispatcher's own thread
+     * @param bufferSize number of slots in the ring, rounded up to a power of two
+     * @param waitStrategy how the dispatcher's thread waits for events
+     * @return a dispatcher for {@link #eventSource(long, URI, EventDispatcher)}
+     */
+    public RingBufferDispatcher ringBufferDispatcher(EventSourceHandler eventSourceHandler, int bufferSize, RingBufferDispatcher.WaitStrategy waitStrategy) {
+        return new RingBufferDispatcher(eventSourceHandler, bufferSize, waitStrategy);
+    }
+
+    /**
+     * Creates a dispatcher that handles events in parallel on an executor, while keeping the order of events with the
+     * same key. For example, {@link KeyExtractor#EVENT_NAME} handles each event type in order, and different types
+     * in parallel.
+     *
+     * @param eventSourceHandler receives events, on several threads at once
+     * @param executor runs the partitions, e.g. <code>Executors.newFixedThreadPool(partitionCount)</code>. It is not
+     * shut down by {@link #shutdown()}.
+     * @param partitionCount the most events handled in parallel
+     * @param keyExtractor picks the key of each event
+     * @return a dispatcher for {@link #eventSource(long, URI, EventDispatcher)}
+     */
+    public PartitionedDispatcher partitionedDispatcher(EventSourceHandler eventSourceHandler, Executor executor, int partitionCount, KeyExtractor keyExtractor) {
+        return new PartitionedDispatcher(executor, eventSourceHandler, partitionCount, keyExtractor);
+    }
+
+    /**
+     * Creates a dispatcher that queues events for a thread to take, instead of calling a handler. It needs no thread
+     * of its own, so it suits one consumer per stream - e.g. a virtual thread - for very many streams.
+     *
+     * @param capacity reading is paused when this many events are waiting to be taken
+     * @return a dispatcher for {@link #eventSource(long, URI, EventDispatcher)}
+     */
+    public BlockingDispatcher blockingDispatcher(int capacity) {
+        return new BlockingDispatcher(capacity);
+    }
+
+    /**
+     * Creates a checkpoint store that writes the last event id to a file at most once a second. The writes of all
+     * the client's stores share one thread, started with the first store.
+     *
+     * @param file where to keep the id
+     * @return a store for {@link EventSource#setCheckpointStore(CheckpointStore)}
+     */
+    public FileCheckpointStore fileCheckpointStore(File file) {
+        return new FileCheckpointStore(file, checkpointExecutor(), FileCheckpointStore.DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    private synchronized ScheduledExecutorService checkpointExecutor() {
+        if (checkpointExecutor == null) {
+            checkpointExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "eventsource-checkpoint");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return checkpointExecutor;
+    }
+
+    /**
+     * @return the timer shared by all EventSources created from this client, for use by custom dispatchers
+     */
+    public Timer getTimer() {
+        return timer;
+    }
+
+    /**
+     * Set how https connections are encrypted, e.g. with a {@link JdkSslEngineFactory} for a custom SSLContext.
+     * The default uses the JVM's default SSLContext.
+     *
+     * @param sslEngineFactory creates an engine for each https connection
+     * @return self
+     */
+    public synchronized EventSourceClient setSslEngineFactory(SslEngineFactory sslEngineFactory) {
+        this.sslEngineFactory = sslEngineFactory;
+        return this;
+    }
+
+    /**
+     * @return the factory for https connections
+     */
+    public synchronized SslEngineFactory getSslEngineFactory() {
+        if (sslEngineFactory == null) {
+            sslEngineFactory = new JdkSslEngineFactory();
+        }
+        return sslEngineFactory;
+    }
+
+    /**
+     * @return the connection manager, with the number of connections to each origin
+     */
+    public ConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Releases the threads held by this client. All EventSources created from it should be closed first -
+     * pending reconnects are cancelled and open connections are no longer serviced.
+     * Must not be called from a handler callback.
+     */
+    public void shutdown() {
+        timer.stop();
+        channelFactory.releaseExternalResources();
+        connectionManager.shutdown();
+        dispatchExecutor.shutdown();
+        synchronized (this) {
+            if (checkpointExecutor != null) {
+                // Writes already scheduled still run
+                checkpointExecutor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.FlowControl;
+import com.github.eventsource.client.impl.SerialExecutor;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares one EventSource per URI between any number of local subscribers. The stream is connected by the first
+ * subscription to its URI and closed when the last one is closed; in between, each event is parsed once and handed
+ * to every subscriber.
+ *
+ * <pre>
+ * EventSourceHub hub = new EventSourceHub(client, EventSource.DEFAULT_RECONNECTION_TIME_MILLIS);
+ * EventSourceHub.Subscription subscription = hub.subscribe(uri, handler);
+ * ...
+ * subscription.close();
+ * </pre>
+ *
+ * Each subscriber gets the events in order, one at a time, on its own executor. A slow subscriber doesn't hold up
+ * the stream or the other subscribers: when it has too many events waiting, further events are dropped for that
+ * subscriber alone, and it is told so through onError. Subscribers share the MessageEvents, so they must not
+ * modify them. A subscriber that joins a stream already connected only gets the events that arrive afterwards.
+ */
+public class EventSourceHub {
+    public static final int DEFAULT_MAX_PENDING = 10000;
+
+    private final EventSourceClient client;
+    private final long reconnectionTimeMillis;
+    // Guarded by itself
+    private final Map<URI, Upstream> upstreams = new HashMap<URI, Upstream>();
+
+    /**
+     * @param client creates the EventSources, and runs subscribers that have no executor of their own
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     */
+    public EventSourceHub(EventSourceClient client, long reconnectionTimeMillis) {
+        this.client = client;
+        this.reconnectionTimeMillis = reconnectionTimeMillis;
+    }
+
+    /**
+     * Subscribes to a stream, on the client's dispatch executor.
+     *
+     * @param uri the stream
+     * @param handler receives events
+     * @return the subscription, to close when done
+     */
+    public Subscription subscribe(URI uri, EventSourceHandler handler) {
+        return subscribe(uri, handler, client.getDispatchExecutor(), DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Subscribes to a stream.
+     *
+     * @param uri the stream
+     * @param handler receives events
+     * @param executor where the handler is called. The handler is never called by two threads at once.
+     * @param maxPending events are dropped for this subscriber while this many are waiting for its handler
+     * @return the subscription, to close when done
+     */
+    public Subscription subscribe(URI uri, EventSourceHandler handler, Executor executor, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be at least 1: " + maxPending);
+        }
+        Subscription subscription = new Subscription(uri, handler, executor, maxPending);
+        synchronized (upstreams) {
+            Upstream upstream = upstreams.get(uri);
+            boolean created = upstream == null;
+            if (created) {
+                upstream = new Upstream();
+                upstreams.put(uri, upstream);
+            }
+            upstream.subscriptions.add(subscription);
+            if (created) {
+                upstream.eventSource = client.eventSource(reconnectionTimeMillis, uri, upstream);
+                upstream.eventSource.connect();
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * @param uri a stream
+     * @return the number of open subscriptions to the stream
+     */
+    public int getSubscriptionCount(URI uri) {
+        synchronized (upstreams) {
+            Upstream upstream = upstreams.get(uri);
+            return upstream == null ? 0 : upstream.subscriptions.size();
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        EventSource toClose = null;
+        synchronized (upstreams) {
+            Upstream upstream = upstreams.get(subscription.uri);
+            if (upstream != null && upstream.subscriptions.remove(subscription) && upstream.subscriptions.isEmpty()) {
+                upstreams.remove(subscription.uri);
+                toClose = upstream.eventSource;
+            }
+        }
+        if (toClose != null) {
+            toClose.close();
+        }
+    }
+
+    /**
+     * A subscriber's registration for a stream.
+     */
+    public class Subscription {
+        private final URI uri;
+        private final EventSourceHandler handler;
+        // Calls the handler one event at a time, in order
+        private final SerialExecutor executor;
+        private final int maxPending;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+        private final AtomicBoolean behind = new AtomicBoolean();
+
+        private Subscription(URI uri, EventSourceHandler handler, Executor executor, int maxPending) {
+            this.uri = uri;
+            this.handler = handler;
+            this.executor = new SerialExecutor(executor);
+            this.maxPending = maxPending;
+        }
+
+        /**
+         * Stops the events for this subscriber. The stream is closed if this was its last subscription.
+         */
+        public void close() {
+            executor.close();
+            unsubscribe(this);
+        }
+
+        /**
+         * @return the number of events waiting for this subscriber's handler
+         */
+        public int getPendingCount() {
+            return pending.get();
+        }
+
+        /**
+         * @return the number of events dropped because this subscriber's handler was behind
+         */
+        public int getDroppedCount() {
+            return dropped.get();
+        }
+
+        private void connected() {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handler.onConnect();
+                    } catch (Exception e) {
+                        onError(e);
+                    }
+                }
+            });
+        }
+
+        private void message(final String event, final MessageEvent message) {
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                dropped.incrementAndGet();
+                // Tell the handler once per stretch of dropped events
+                if (behind.compareAndSet(false, true)) {
+                    error(new EventSourceException("Subscriber is behind - dropping events from " + uri));
+                }
+                return;
+            }
+            behind.set(false);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handler.onMessage(event, message);
+                    } catch (Exception e) {
+                        onError(e);
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+            });
+        }
+
+        private void error(final Throwable t) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    onError(t);
+                }
+            });
+        }
+
+        /**
+         * Runs on the subscriber's executor, which must not see the handler's exceptions.
+         */
+        private void onError(Throwable t) {
+            try {
+                handler.onError(t);
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static class Upstream implements EventDispatcher {
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+        private EventSource eventSource;
+
+        @Override
+        public void onConnect() {
+            for (Subscription subscription : subscriptions) {
+                subscription.connected();
+            }
+        }
+
+        @Override
+        public void onMessage(String event, MessageEvent message) {
+            for (Subscription subscription : subscriptions) {
+                subscription.message(event, message);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            for (Subscription subscription : subscriptions) {
+                subscription.error(t);
+            }
+        }
+
+        @Override
+        public void readComplete() {
+        }
+
+        @Override
+        public void setFlowControl(FlowControl flowControl) {
+            // Never paused: a slow subscriber must not hold up the others
+        }
+
+        @Override
+        public void setMetrics(EventSourceMetrics metrics) {
+        }
+
+        @Override
+        public void setCheckpointStore(CheckpointStore checkpointStore) {
+        }
+    }
+}
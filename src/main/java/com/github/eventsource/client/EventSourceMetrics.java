@@ -0,0 +1,72 @@
+package com.github.eventsource.client;
+
+/**
+ * Receives measurements from an {@link EventSource}. The methods are called from the I/O thread and the threads
+ * that deliver events, so implementations must be thread safe and quick.
+ *
+ * @see JmxEventSourceMetrics
+ * @see EventSource#setMetrics(EventSourceMetrics)
+ */
+public interface EventSourceMetrics {
+    /**
+     * Ignores all measurements. This is the default, and nothing is timed while it is used.
+     */
+    EventSourceMetrics NONE = new EventSourceMetrics() {
+        @Override
+        public void connected() {
+        }
+
+        @Override
+        public void bytesRead(int count) {
+        }
+
+        @Override
+        public void parsed(int lines, long nanos) {
+        }
+
+        @Override
+        public void eventQueued(int pendingCount) {
+        }
+
+        @Override
+        public void eventDelivered(int pendingCount, long handlerNanos) {
+        }
+
+        @Override
+        public void reconnecting(Throwable cause, long delayMillis) {
+        }
+    };
+
+    /**
+     * The server has accepted the request and started sending the event stream.
+     */
+    void connected();
+
+    /**
+     * @param count number of bytes read from the socket, before any decompression
+     */
+    void bytesRead(int count);
+
+    /**
+     * @param lines number of lines parsed from a chunk of the stream
+     * @param nanos time taken to parse the chunk and queue its events
+     */
+    void parsed(int lines, long nanos);
+
+    /**
+     * @param pendingCount number of events waiting to be delivered, including this one
+     */
+    void eventQueued(int pendingCount);
+
+    /**
+     * @param pendingCount number of events still waiting to be delivered
+     * @param handlerNanos time spent in the handler's onMessage
+     */
+    void eventDelivered(int pendingCount, long handlerNanos);
+
+    /**
+     * @param cause the error that ended the connection, or null if it was closed by the server
+     * @param delayMillis how long the EventSource waits before reconnecting
+     */
+    void reconnecting(Throwable cause, long delayMillis);
+}
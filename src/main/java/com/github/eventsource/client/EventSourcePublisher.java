@@ -0,0 +1,232 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.FlowControl;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.net.URI;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A <a href="http://www.reactive-streams.org/">Reactive Streams</a> Publisher of the messages of an EventSource.
+ * The subscriber's demand drives reading: the connection is only read while the subscriber has requested more
+ * messages than it has received, so messages are never buffered beyond the contents of one network read. On Java 9
+ * and later, <code>org.reactivestreams.FlowAdapters</code> turns it into a <code>java.util.concurrent.Flow</code>
+ * Publisher. Needs the optional reactive-streams dependency.
+ *
+ * <pre>
+ * EventSourcePublisher publisher = new EventSourcePublisher(client, reconnectionTimeMillis, uri);
+ * publisher.eventSource().setEventFilter(filter);
+ * publisher.subscribe(subscriber);
+ * </pre>
+ *
+ * The publisher has a single subscriber - the stream is connected when it subscribes, and closed when it cancels.
+ * {@link #close()} closes the stream and completes the subscriber once it has received the messages already read.
+ * If the server refuses the stream - a {@link BadResponseException} - the stream is closed and the subscriber gets
+ * the error. Other connection errors are not signalled, as the EventSource recovers from them by reconnecting - use
+ * {@link EventSourceMetrics} to watch them. A subscriber that throws is treated as cancelled. Messages are delivered on the I/O thread or on the thread calling
+ * request, so the subscriber must not block. Message ids are checkpointed when onNext returns. Don't give the
+ * EventSource a message pool: subscribers may keep the messages.
+ */
+public class EventSourcePublisher implements Publisher<MessageEvent> {
+    private final EventSource eventSource;
+    private final Dispatcher dispatcher = new Dispatcher();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final Queue<MessageEvent> queue = new ConcurrentLinkedQueue<MessageEvent>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Counts the drain requests, so that one thread at a time drains
+    private final AtomicInteger drains = new AtomicInteger();
+
+    private volatile Subscriber<? super MessageEvent> subscriber;
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+    private volatile Throwable error;
+    private FlowControl flowControl;
+    private EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private CheckpointStore checkpointStore;
+    // Only used while draining
+    private boolean readable = true;
+
+    /**
+     * @param client shares its I/O threads and timer
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     */
+    public EventSourcePublisher(EventSourceClient client, long reconnectionTimeMillis, URI uri) {
+        this.eventSource = client.eventSource(reconnectionTimeMillis, uri, dispatcher);
+    }
+
+    /**
+     * @return the EventSource, to configure before subscribing
+     */
+    public EventSource eventSource() {
+        return eventSource;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super MessageEvent> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("An EventSourcePublisher only has one subscriber"));
+            return;
+        }
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    EventSourcePublisher.this.subscriber.onError(new IllegalArgumentException("Requested " + n + " messages - must be at least 1"));
+                    return;
+                }
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                if (!cancelled) {
+                    cancelled = true;
+                    eventSource.close();
+                }
+            }
+        });
+        if (!cancelled) {
+            eventSource.connect();
+        }
+    }
+
+    /**
+     * Closes the stream. The subscriber is completed once it has received the messages already read.
+     */
+    public void close() {
+        eventSource.close();
+        completed = true;
+        drain();
+    }
+
+    EventDispatcher dispatcher() {
+        return dispatcher;
+    }
+
+    private void drain() {
+        if (drains.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Subscriber<? super MessageEvent> s = subscriber;
+            long demand = requested.get();
+            long emitted = 0;
+            while (emitted != demand && !cancelled) {
+                MessageEvent message = queue.poll();
+                if (message == null) {
+                    break;
+                }
+                long start = metrics == EventSourceMetrics.NONE ? 0 : System.nanoTime();
+                try {
+                    s.onNext(message);
+                } catch (Throwable t) {
+                    // A subscriber that throws has broken the contract, so it is treated as cancelled (rule 2.13)
+                    cancelled = true;
+                    eventSource.close();
+                    break;
+                }
+                if (checkpointStore != null && message.getLastEventId() != null) {
+                    checkpointStore.save(message.getLastEventId());
+                }
+                int pendingCount = pending.decrementAndGet();
+                if (metrics != EventSourceMetrics.NONE) {
+                    metrics.eventDelivered(pendingCount, System.nanoTime() - start);
+                }
+                emitted++;
+            }
+            if (emitted != 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+            Throwable failure = error;
+            if (failure != null && !cancelled && s != null) {
+                // Messages the subscriber hasn't asked for yet are dropped
+                cancelled = true;
+                queue.clear();
+                s.onError(failure);
+            }
+            if (completed && !cancelled && queue.isEmpty() && s != null) {
+                cancelled = true;
+                s.onComplete();
+            }
+            // Read only while there is demand left over
+            boolean wantReadable = !cancelled && requested.get() > 0;
+            if (wantReadable != readable && flowControl != null) {
+                readable = wantReadable;
+                flowControl.setReadable(wantReadable);
+            }
+            missed = drains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private class Dispatcher implements EventDispatcher {
+        @Override
+        public void setFlowControl(FlowControl flowControl) {
+            EventSourcePublisher.this.flowControl = flowControl;
+        }
+
+        @Override
+        public void setMetrics(EventSourceMetrics metrics) {
+            EventSourcePublisher.this.metrics = metrics;
+        }
+
+        @Override
+        public void setCheckpointStore(CheckpointStore checkpointStore) {
+            EventSourcePublisher.this.checkpointStore = checkpointStore;
+        }
+
+        @Override
+        public void onConnect() {
+        }
+
+        @Override
+        public void onMessage(String event, MessageEvent message) {
+            queue.add(message);
+            metrics.eventQueued(pending.incrementAndGet());
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Anything else is followed by a reconnect, which the subscriber doesn't need to know about
+            if (t instanceof BadResponseException && !completed) {
+                eventSource.close();
+                error = t;
+                drain();
+            }
+        }
+
+        @Override
+        public void readComplete() {
+        }
+    }
+}
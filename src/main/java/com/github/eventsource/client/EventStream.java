@@ -0,0 +1,32 @@
+package com.github.eventsource.client;
+
+/**
+ * What all EventSources have in common, whichever transport they use: once opened, they deliver events to an
+ * {@link EventSourceHandler} and reconnect on lost connections until they are closed. Code that only starts and stops
+ * streams can depend on this, and leave the choice of transport to whoever creates them.
+ *
+ * @see EventSource
+ */
+public interface EventStream {
+    /**
+     * Connects to the server, without waiting for the connection to be made.
+     *
+     * @return self
+     */
+    EventStream open();
+
+    /**
+     * Closes the connection, and stops reconnecting.
+     *
+     * @return self
+     */
+    EventStream close();
+
+    /**
+     * Waits until the connection is closed.
+     *
+     * @return self
+     * @throws InterruptedException if waiting was interrupted
+     */
+    EventStream join() throws InterruptedException;
+}
@@ -0,0 +1,96 @@
+package com.github.eventsource.client;
+
+import java.util.Random;
+
+/**
+ * Doubles the reconnect delay with every failed attempt, up to a maximum. The first delay - the starting delay - is
+ * the reconnection time, or the initial delay if that is longer, so that a server sending <code>retry: 0</code>
+ * still gets backed off from. Jitter
+ * spreads the reconnects of many clients that lost their connections at the same time - e.g. when the server
+ * restarted - so they don't all come back in the same instant.
+ *
+ * See <a href="http://www.awsarchitectureblog.com/2015/03/backoff.html">Exponential Backoff And Jitter</a> for a
+ * comparison of the jitter variants.
+ */
+public class ExponentialBackoff implements ReconnectionPolicy {
+    public enum Jitter {
+        /** The delay is exactly the starting delay times 2^(attempt - 1), up to the maximum. */
+        NONE,
+        /**
+         * The delay is random, between the starting delay and the exponential delay - or, on the first attempt,
+         * twice the starting delay, so that clients that lose their connections together don't all retry together.
+         */
+        FULL,
+        /** The delay is random, between the starting delay and three times the previous delay, up to the maximum. */
+        DECORRELATED
+    }
+
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 60000;
+    public static final long DEFAULT_RESET_AFTER_MILLIS = 30000;
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Jitter jitter;
+    private final long resetAfterMillis;
+    private final Random random = new Random();
+
+    public ExponentialBackoff() {
+        this(DEFAULT_MAX_DELAY_MILLIS, Jitter.FULL, DEFAULT_RESET_AFTER_MILLIS);
+    }
+
+    /**
+     * @param maxDelayMillis the longest delay, unless the reconnection time is longer still
+     * @param jitter how to randomise the delay
+     * @param resetAfterMillis how long a connection must have delivered the event stream before the delay starts over
+     */
+    public ExponentialBackoff(long maxDelayMillis, Jitter jitter, long resetAfterMillis) {
+        this(DEFAULT_INITIAL_DELAY_MILLIS, maxDelayMillis, jitter, resetAfterMillis);
+    }
+
+    /**
+     * @param initialDelayMillis the shortest starting delay, used when the reconnection time is shorter still
+     * @param maxDelayMillis the longest delay, unless the reconnection time is longer still
+     * @param jitter how to randomise the delay
+     * @param resetAfterMillis how long a connection must have delivered the event stream before the delay starts over
+     */
+    public ExponentialBackoff(long initialDelayMillis, long maxDelayMillis, Jitter jitter, long resetAfterMillis) {
+        if (initialDelayMillis < 1) {
+            throw new IllegalArgumentException("initialDelayMillis must be at least 1: " + initialDelayMillis);
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+        this.resetAfterMillis = resetAfterMillis;
+    }
+
+    @Override
+    public long delayMillis(int attempt, long previousDelayMillis, long reconnectionTimeMillis) {
+        long base = Math.min(Math.max(reconnectionTimeMillis, initialDelayMillis), maxDelayMillis);
+        switch (jitter) {
+            case FULL:
+                // On the first attempt the exponential delay is the reconnection time itself, which leaves no room
+                return between(base, Math.max(exponential(base, attempt), Math.min(maxDelayMillis, base * 2)));
+            case DECORRELATED:
+                return between(base, Math.min(maxDelayMillis, Math.max(base, previousDelayMillis) * 3));
+            default:
+                return exponential(base, attempt);
+        }
+    }
+
+    @Override
+    public long getResetAfterMillis() {
+        return resetAfterMillis;
+    }
+
+    private long exponential(long base, int attempt) {
+        return (long) Math.min(maxDelayMillis, base * Math.pow(2, attempt - 1));
+    }
+
+    private long between(long min, long max) {
+        if (max <= min) {
+            return min;
+        }
+        return min + (long) (random.nextDouble() * (max - min + 1));
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.eventsource.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the last event id in a file. Saves are coalesced: the latest id is written at most once per flush interval,
+ * so the file lags behind by up to the interval and a restarted process may see a few events again.
+ *
+ * Each write goes to a temporary file that is synced to disk and then renamed over the checkpoint, so the file
+ * always holds a complete id. The writes run on an executor of their own, so a slow disk never holds up the client's
+ * timer. A write that fails in the background is tried again with the next save,
+ * and kept for {@link #getLastFailure()} until one succeeds.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final File tempFile;
+    private final ScheduledExecutorService executor;
+    private final long flushIntervalMillis;
+
+    private final Object writeLock = new Object();
+    private String pending;
+    private ScheduledFuture<?> flushFuture;
+    // Guarded by writeLock
+    private String saved;
+    private volatile EventSourceException lastFailure;
+
+    /**
+     * @param file where to keep the id
+     * @param executor runs the writes. It should not be shared with anything that minds waiting for the disk.
+     * @param flushIntervalMillis how often the latest id is written. 0 writes every id before save returns.
+     */
+    public FileCheckpointStore(File file, ScheduledExecutorService executor, long flushIntervalMillis) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".tmp");
+        this.executor = executor;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @Override
+    public String load() {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                byte[] bytes = new byte[(int) file.length()];
+                int length = 0;
+                int n;
+                while (length < bytes.length && (n = in.read(bytes, length, bytes.length - length)) != -1) {
+                    length += n;
+                }
+                return new String(bytes, 0, length, UTF_8);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new EventSourceException("Failed to read checkpoint " + file, e);
+        }
+    }
+
+    @Override
+    public void save(String lastEventId) {
+        synchronized (this) {
+            pending = lastEventId;
+            if (flushIntervalMillis != 0 && flushFuture == null) {
+                flushFuture = executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            flush();
+                        } catch (EventSourceException e) {
+                            // Tried again with the next save
+                            lastFailure = e;
+                        }
+                    }
+                }, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushIntervalMillis == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the latest id now. Call this when the EventSource has been closed.
+     *
+     * @throws EventSourceException if the id couldn't be written
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            String id;
+            synchronized (this) {
+                if (flushFuture != null) {
+                    flushFuture.cancel(false);
+                    flushFuture = null;
+                }
+                id = pending;
+            }
+            if (id == null || id.equals(saved)) {
+                return;
+            }
+            // Outside the store's lock, so that saves aren't held up by the disk
+            write(id);
+            saved = id;
+            lastFailure = null;
+        }
+    }
+
+    /**
+     * @return why the last write in the background failed, or null if it succeeded or nothing has been written yet
+     */
+    public EventSourceException getLastFailure() {
+        return lastFailure;
+    }
+
+    private void write(String id) {
+        try {
+            FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                out.write(id.getBytes(UTF_8));
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            // Windows won't rename over an existing file
+            if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+                throw new IOException("Failed to rename " + tempFile + " to " + file);
+            }
+        } catch (IOException e) {
+            throw new EventSourceException("Failed to write checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.eventsource.client;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Creates engines from an SSLContext. The context's client session cache is keyed by host and port, so reconnects
+ * resume the previous TLS session when the server allows it, and all EventSources sharing the factory share the
+ * cache. The server's certificate is checked against the host name.
+ *
+ * The context may come from any JCA provider - e.g. an OpenSSL backed one such as
+ * <a href="https://github.com/google/conscrypt">Conscrypt</a> - for cheaper handshakes and encryption.
+ */
+public class JdkSslEngineFactory implements SslEngineFactory {
+    private final SSLContext sslContext;
+
+    /**
+     * Uses the JVM's default SSLContext.
+     *
+     * @throws EventSourceException if there is no default SSLContext
+     */
+    public JdkSslEngineFactory() {
+        this(defaultContext());
+    }
+
+    public JdkSslEngineFactory(SSLContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    @Override
+    public SSLEngine createSslEngine(String host, int port) {
+        SSLEngine engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    private static SSLContext defaultContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new EventSourceException("No default SSLContext", e);
+        }
+    }
+}
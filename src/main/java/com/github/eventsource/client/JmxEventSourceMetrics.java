@@ -0,0 +1,274 @@
+package com.github.eventsource.client;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what an EventSource does and exposes the counts as an MBean named
+ * <code>com.github.eventsource:type=EventSourceMetrics,name=&lt;name&gt;</code>. The counts of all streams are also
+ * added up in the MBean named <code>total</code>.
+ *
+ * <pre>
+ * JmxEventSourceMetrics metrics = new JmxEventSourceMetrics(uri.toString());
+ * EventSource es = client.eventSource(uri, handler).setMetrics(metrics);
+ * ...
+ * es.close();
+ * metrics.unregister();
+ * </pre>
+ */
+public class JmxEventSourceMetrics implements EventSourceMetrics, JmxEventSourceMetricsMBean {
+    public static final String DOMAIN = "com.github.eventsource";
+
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double ALPHA = 1 - Math.exp(-5 / 60.0);
+    private static JmxEventSourceMetrics total;
+
+    private final ObjectName objectName;
+    private final JmxEventSourceMetrics parent;
+    private final List<JmxEventSourceMetrics> streams = new CopyOnWriteArrayList<JmxEventSourceMetrics>();
+
+    private final AtomicLong connectCount = new AtomicLong();
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong linesParsed = new AtomicLong();
+    private final AtomicLong parseTimeNanos = new AtomicLong();
+    private final AtomicLong eventsDelivered = new AtomicLong();
+    private final AtomicLong handlerTimeNanos = new AtomicLong();
+    private final AtomicLong uncountedEvents = new AtomicLong();
+    private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+    private volatile String lastReconnectCause;
+    private volatile int queueDepth;
+    private volatile long lastEventAt;
+    private volatile double eventsPerSecond = -1;
+
+    /**
+     * Creates and registers the MBean for a stream.
+     *
+     * @param name the name of the stream, e.g. its URI
+     * @throws EventSourceException if the MBean can't be registered, e.g. because the name is taken
+     */
+    public JmxEventSourceMetrics(String name) {
+        this(objectName(ObjectName.quote(name)), total());
+        parent.streams.add(this);
+    }
+
+    private JmxEventSourceMetrics(ObjectName objectName, JmxEventSourceMetrics parent) {
+        this.objectName = objectName;
+        this.parent = parent;
+        try {
+            mBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new EventSourceException("Failed to register " + objectName, e);
+        }
+    }
+
+    /**
+     * @return the metrics of all streams together
+     */
+    public static synchronized JmxEventSourceMetrics total() {
+        if (total == null) {
+            total = new JmxEventSourceMetrics(objectName("total"), null);
+        }
+        return total;
+    }
+
+    /**
+     * Removes the MBean. The stream's counts stay in the total.
+     */
+    public void unregister() {
+        if (parent != null) {
+            // Under the total's lock, so that its getters count the stream exactly once
+            synchronized (parent) {
+                parent.streams.remove(this);
+                parent.connectCount.addAndGet(connectCount.get());
+                parent.reconnectCount.addAndGet(reconnectCount.get());
+                parent.bytesRead.addAndGet(bytesRead.get());
+                parent.linesParsed.addAndGet(linesParsed.get());
+                parent.parseTimeNanos.addAndGet(parseTimeNanos.get());
+                parent.eventsDelivered.addAndGet(eventsDelivered.get());
+                parent.handlerTimeNanos.addAndGet(handlerTimeNanos.get());
+                parent.lastEventAt = Math.max(parent.lastEventAt, lastEventAt);
+            }
+        }
+        try {
+            mBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new EventSourceException("Failed to unregister " + objectName, e);
+        }
+    }
+
+    // Only the stream's own counts are updated. The total adds them up when it is read, so that streams on different
+    // threads don't all write to the same counters.
+
+    @Override
+    public void connected() {
+        connectCount.incrementAndGet();
+    }
+
+    @Override
+    public void bytesRead(int count) {
+        bytesRead.addAndGet(count);
+    }
+
+    @Override
+    public void parsed(int lines, long nanos) {
+        linesParsed.addAndGet(lines);
+        parseTimeNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void eventQueued(int pendingCount) {
+        queueDepth = pendingCount;
+    }
+
+    @Override
+    public void eventDelivered(int pendingCount, long handlerNanos) {
+        queueDepth = pendingCount;
+        eventsDelivered.incrementAndGet();
+        handlerTimeNanos.addAndGet(handlerNanos);
+        uncountedEvents.incrementAndGet();
+        lastEventAt = System.currentTimeMillis();
+        tickIfDue(System.nanoTime());
+    }
+
+    @Override
+    public void reconnecting(Throwable cause, long delayMillis) {
+        reconnectCount.incrementAndGet();
+        lastReconnectCause = cause == null ? "Closed by server" : cause.toString();
+        if (parent != null) {
+            // Reconnects are rare enough to share
+            parent.lastReconnectCause = lastReconnectCause;
+        }
+    }
+
+    @Override
+    public synchronized long getConnectCount() {
+        long count = connectCount.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            count += stream.connectCount.get();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized long getReconnectCount() {
+        long count = reconnectCount.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            count += stream.reconnectCount.get();
+        }
+        return count;
+    }
+
+    @Override
+    public String getLastReconnectCause() {
+        return lastReconnectCause;
+    }
+
+    @Override
+    public synchronized long getBytesRead() {
+        long count = bytesRead.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            count += stream.bytesRead.get();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized long getLinesParsed() {
+        long count = linesParsed.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            count += stream.linesParsed.get();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized long getParseTimeNanos() {
+        long nanos = parseTimeNanos.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            nanos += stream.parseTimeNanos.get();
+        }
+        return nanos;
+    }
+
+    @Override
+    public synchronized long getEventsDelivered() {
+        long count = eventsDelivered.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            count += stream.eventsDelivered.get();
+        }
+        return count;
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        if (parent == null) {
+            double rate = 0;
+            for (JmxEventSourceMetrics stream : streams) {
+                rate += stream.getEventsPerSecond();
+            }
+            return rate;
+        }
+        tickIfDue(System.nanoTime());
+        return Math.max(eventsPerSecond, 0);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int depth = queueDepth;
+        for (JmxEventSourceMetrics stream : streams) {
+            depth += stream.queueDepth;
+        }
+        return depth;
+    }
+
+    @Override
+    public synchronized long getHandlerTimeNanos() {
+        long nanos = handlerTimeNanos.get();
+        for (JmxEventSourceMetrics stream : streams) {
+            nanos += stream.handlerTimeNanos.get();
+        }
+        return nanos;
+    }
+
+    @Override
+    public synchronized long getMillisSinceLastEvent() {
+        long last = lastEventAt;
+        for (JmxEventSourceMetrics stream : streams) {
+            last = Math.max(last, stream.lastEventAt);
+        }
+        return last == 0 ? -1 : System.currentTimeMillis() - last;
+    }
+
+    void tickIfDue(long nanoTime) {
+        long previous = lastTick.get();
+        long age = nanoTime - previous;
+        if (age >= TICK_NANOS && lastTick.compareAndSet(previous, previous + age - age % TICK_NANOS)) {
+            tick(age / TICK_NANOS);
+        }
+    }
+
+    private synchronized void tick(long ticks) {
+        // The events counted since the last tick arrived over all the intervals it covers, not just the first
+        double rate = uncountedEvents.getAndSet(0) / (5.0 * ticks);
+        eventsPerSecond = eventsPerSecond < 0 ? rate : rate + Math.pow(1 - ALPHA, ticks) * (eventsPerSecond - rate);
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=EventSourceMetrics,name=" + name);
+        } catch (JMException e) {
+            throw new EventSourceException("Invalid MBean name: " + name, e);
+        }
+    }
+
+    private static MBeanServer mBeanServer() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.eventsource.client;
+
+/**
+ * The attributes of {@link JmxEventSourceMetrics}.
+ */
+public interface JmxEventSourceMetricsMBean {
+    long getConnectCount();
+
+    long getReconnectCount();
+
+    /**
+     * @return why the last connection ended, or null if it hasn't
+     */
+    String getLastReconnectCause();
+
+    long getBytesRead();
+
+    long getLinesParsed();
+
+    long getParseTimeNanos();
+
+    long getEventsDelivered();
+
+    /**
+     * @return events delivered per second, averaged exponentially over about a minute
+     */
+    double getEventsPerSecond();
+
+    /**
+     * @return number of events waiting to be delivered
+     */
+    int getQueueDepth();
+
+    long getHandlerTimeNanos();
+
+    /**
+     * @return time since the last event was delivered, or -1 if none has been
+     */
+    long getMillisSinceLastEvent();
+}
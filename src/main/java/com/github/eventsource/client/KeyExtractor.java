@@ -0,0 +1,28 @@
+package com.github.eventsource.client;
+
+/**
+ * Picks the key that orders events in a partitioned dispatcher: events with equal keys are handled one at a time,
+ * in the order they were received, while events with different keys may be handled in parallel.
+ *
+ * @see EventSourceClient#partitionedDispatcher(EventSourceHandler, java.util.concurrent.Executor, int, KeyExtractor)
+ */
+public interface KeyExtractor {
+    /**
+     * Orders events by their event name.
+     */
+    KeyExtractor EVENT_NAME = new KeyExtractor() {
+        @Override
+        public Object key(String event, MessageEvent message) {
+            return event;
+        }
+    };
+
+    /**
+     * Called on the I/O thread for each event, so it should be cheap. Keys are compared with equals and hashCode.
+     *
+     * @param event the event name
+     * @param message the message
+     * @return the key, or null for events that only need to be ordered with other null keys
+     */
+    Object key(String event, MessageEvent message);
+}
@@ -1,48 +1,116 @@
 package com.github.eventsource.client;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
 public class MessageEvent {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The data, or null if the message was created from raw bytes or comes from a message pool - use
+     * {@link #getData()} to access it either way. The same goes for the other fields.
+     */
     public final String data;
     public final String lastEventId;
     public final String origin;
 
+    private final byte[] dataBytes;
+    private String decodedData;
+
     public MessageEvent(String data, String lastEventId, String origin) {
         this.data = data;
         this.lastEventId = lastEventId;
         this.origin = origin;
+        this.dataBytes = null;
     }
 
     public MessageEvent(String data) {
         this(data, null, null);
     }
 
+    /**
+     * Creates a message that keeps its data as UTF-8 bytes. The data is only decoded if {@link #getData()} is called.
+     *
+     * @param dataBytes the UTF-8 encoded data. The array is not copied and must not be modified afterwards.
+     * @param lastEventId the last event id
+     * @param origin the origin
+     */
+    public MessageEvent(byte[] dataBytes, String lastEventId, String origin) {
+        this.data = null;
+        this.lastEventId = lastEventId;
+        this.origin = origin;
+        this.dataBytes = dataBytes;
+    }
+
+    /**
+     * @return the data, decoded on first access if the message was created from raw bytes
+     */
+    public String getData() {
+        if (data != null) {
+            return data;
+        }
+        if (decodedData == null && dataBytes != null) {
+            decodedData = new String(dataBytes, UTF_8);
+        }
+        return decodedData;
+    }
+
+    /**
+     * @return a read-only view of the UTF-8 encoded data. It is not copied if the message was created from raw bytes.
+     */
+    public ByteBuffer getDataBytes() {
+        if (dataBytes != null) {
+            return ByteBuffer.wrap(dataBytes).asReadOnlyBuffer();
+        }
+        return data == null ? null : ByteBuffer.wrap(data.getBytes(UTF_8)).asReadOnlyBuffer();
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Messages from an EventSource with a message pool are recycled when the handler's onMessage returns.
+     * A handler that keeps a message beyond that must keep a copy.
+     *
+     * @return a message with the same content that stays valid - this message, unless it is recycled
+     */
+    public MessageEvent copy() {
+        return this;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof MessageEvent)) return false;
 
         MessageEvent that = (MessageEvent) o;
 
-        if (data != null ? !data.equals(that.data) : that.data != null) return false;
-        if (lastEventId != null ? !lastEventId.equals(that.lastEventId) : that.lastEventId != null) return false;
-        if (origin != null ? !origin.equals(that.origin) : that.origin != null) return false;
+        if (getData() != null ? !getData().equals(that.getData()) : that.getData() != null) return false;
+        if (getLastEventId() != null ? !getLastEventId().equals(that.getLastEventId()) : that.getLastEventId() != null) return false;
+        if (getOrigin() != null ? !getOrigin().equals(that.getOrigin()) : that.getOrigin() != null) return false;
 
         return true;
     }
 
     @Override
     public int hashCode() {
-        int result = data != null ? data.hashCode() : 0;
-        result = 31 * result + (lastEventId != null ? lastEventId.hashCode() : 0);
-        result = 31 * result + (origin != null ? origin.hashCode() : 0);
+        int result = getData() != null ? getData().hashCode() : 0;
+        result = 31 * result + (getLastEventId() != null ? getLastEventId().hashCode() : 0);
+        result = 31 * result + (getOrigin() != null ? getOrigin().hashCode() : 0);
         return result;
     }
 
     @Override
     public String toString() {
         return "MessageEvent{" +
-                "data='" + data + '\'' +
-                ", lastEventId='" + lastEventId + '\'' +
-                ", origin='" + origin + '\'' +
+                "data='" + getData() + '\'' +
+                ", lastEventId='" + getLastEventId() + '\'' +
+                ", origin='" + getOrigin() + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,39 @@
+package com.github.eventsource.client;
+
+/**
+ * Decides how long an {@link EventSource} waits before reconnecting. Whatever the policy returns, the EventSource
+ * never waits less than its reconnection time - the server's <code>retry</code> value if it has sent one.
+ *
+ * Policies are called from I/O and timer threads and may be shared between EventSources.
+ *
+ * @see ExponentialBackoff
+ */
+public interface ReconnectionPolicy {
+    /**
+     * Always waits the reconnection time.
+     */
+    ReconnectionPolicy CONSTANT = new ReconnectionPolicy() {
+        @Override
+        public long delayMillis(int attempt, long previousDelayMillis, long reconnectionTimeMillis) {
+            return reconnectionTimeMillis;
+        }
+
+        @Override
+        public long getResetAfterMillis() {
+            return 0;
+        }
+    };
+
+    /**
+     * @param attempt the number of reconnects since the last healthy connection, starting at 1
+     * @param previousDelayMillis the delay before the previous reconnect, or 0 on the first attempt
+     * @param reconnectionTimeMillis the EventSource's reconnection time
+     * @return how long to wait before reconnecting
+     */
+    long delayMillis(int attempt, long previousDelayMillis, long reconnectionTimeMillis);
+
+    /**
+     * @return how long a connection must have delivered the event stream before the attempt count starts over
+     */
+    long getResetAfterMillis();
+}
@@ -0,0 +1,20 @@
+package com.github.eventsource.client;
+
+import javax.net.ssl.SSLEngine;
+
+/**
+ * Creates the SSLEngines for https connections.
+ *
+ * @see JdkSslEngineFactory
+ */
+public interface SslEngineFactory {
+    /**
+     * Called for every connect, including reconnects.
+     *
+     * @param host the server's host name
+     * @param port the server's port
+     * @return a client mode engine. Engines created for the same host and port should share a session cache, so
+     * that reconnects can resume the TLS session instead of making a full handshake.
+     */
+    SSLEngine createSslEngine(String host, int port);
+}
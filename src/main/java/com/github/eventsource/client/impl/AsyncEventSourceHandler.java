@@ -1,21 +1,111 @@
 package com.github.eventsource.client.impl;
 
+import com.github.eventsource.client.BatchEventSourceHandler;
+import com.github.eventsource.client.CheckpointStore;
 import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
 import com.github.eventsource.client.MessageEvent;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
-public class AsyncEventSourceHandler implements EventSourceHandler {
+/**
+ * Hands events over to an {@link EventSourceHandler} on an executor.
+ *
+ * In batching mode, messages are collected until the end of a network read (or until the batch is full) and
+ * delivered by a single task. A {@link BatchEventSourceHandler} receives the whole batch in one call, any other
+ * handler receives the messages one by one, and an exception from one message doesn't stop the rest of the batch.
+ *
+ * In bounded mode, reading from the connection is paused when the number of messages waiting to be delivered
+ * reaches a high watermark, and resumed when it has fallen to a low watermark. Messages already read from the
+ * socket are still delivered, so the queue can exceed the high watermark by the contents of one network read.
+ *
+ * Pooled messages are recycled, and message ids checkpointed, when the handler has returned.
+ */
+public class AsyncEventSourceHandler implements EventDispatcher {
     private final Executor executor;
     private final EventSourceHandler eventSourceHandler;
+    private final int maxBatchSize;
+    private final long maxLingerMillis;
+    private final Timer timer;
+    private final Watermarks watermarks;
+
+    private EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private CheckpointStore checkpointStore;
+    private List<String> batchEvents;
+    private List<MessageEvent> batchMessages;
+    private Timeout lingerTimeout;
 
     public AsyncEventSourceHandler(Executor executor, EventSourceHandler eventSourceHandler) {
+        this(executor, eventSourceHandler, 1, 0, null);
+    }
+
+    /**
+     * @param executor the executor that will receive events
+     * @param eventSourceHandler receives events
+     * @param maxBatchSize a batch is delivered as soon as it has this many messages. 1 disables batching.
+     * @param maxLingerMillis how long an incomplete batch may wait for more network reads. 0 delivers it at the end
+     * of each read. The delay is approximate - it is rounded up to the timer's tick.
+     * @param timer used to deliver lingering batches. May be null if maxLingerMillis is 0.
+     */
+    public AsyncEventSourceHandler(Executor executor, EventSourceHandler eventSourceHandler, int maxBatchSize, long maxLingerMillis, Timer timer) {
+        this(executor, eventSourceHandler, maxBatchSize, maxLingerMillis, timer, 0, 0);
+    }
+
+    /**
+     * @param executor the executor that will receive events
+     * @param eventSourceHandler receives events
+     * @param maxBatchSize a batch is delivered as soon as it has this many messages. 1 disables batching.
+     * @param maxLingerMillis how long an incomplete batch may wait for more network reads
+     * @param timer used to deliver lingering batches. May be null if maxLingerMillis is 0.
+     * @param highWatermark reading is paused when this many messages are waiting to be delivered. 0 means unbounded.
+     * @param lowWatermark reading is resumed when no more than this many messages are waiting to be delivered
+     */
+    public AsyncEventSourceHandler(Executor executor, EventSourceHandler eventSourceHandler, int maxBatchSize, long maxLingerMillis, Timer timer, int highWatermark, int lowWatermark) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+        }
+        if (maxLingerMillis > 0 && timer == null) {
+            throw new IllegalArgumentException("A timer is needed for maxLingerMillis " + maxLingerMillis);
+        }
+        this.watermarks = new Watermarks(highWatermark, lowWatermark);
         this.executor = executor;
         this.eventSourceHandler = eventSourceHandler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerMillis = maxLingerMillis;
+        this.timer = timer;
+    }
+
+    @Override
+    public void setFlowControl(FlowControl flowControl) {
+        watermarks.setFlowControl(flowControl);
+    }
+
+    @Override
+    public void setMetrics(EventSourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * @return the number of messages received but not yet delivered to the handler
+     */
+    public int getPendingCount() {
+        return watermarks.getPendingCount();
     }
 
     @Override
     public void onConnect() {
+        flush();
         executor.execute(new Runnable() {
             @Override
             public void run() {
@@ -30,29 +120,134 @@ public class AsyncEventSourceHandler implements EventSourceHandler {
 
     @Override
     public void onMessage(final String event, final MessageEvent message) {
+        metrics.eventQueued(watermarks.queued());
+        if (maxBatchSize == 1) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = metrics == EventSourceMetrics.NONE ? 0 : System.nanoTime();
+                    try {
+                        eventSourceHandler.onMessage(event, message);
+                    } catch (Exception e) {
+                        onError(e);
+                    } finally {
+                        checkpoint(message);
+                        MessageEventPool.recycle(message);
+                        delivered(1, start);
+                    }
+                }
+            });
+            return;
+        }
+        synchronized (this) {
+            if (batchEvents == null) {
+                batchEvents = new ArrayList<String>(maxBatchSize);
+                batchMessages = new ArrayList<MessageEvent>(maxBatchSize);
+            }
+            batchEvents.add(event);
+            batchMessages.add(message);
+            if (batchEvents.size() == maxBatchSize) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+        flush();
         executor.execute(new Runnable() {
             @Override
             public void run() {
                 try {
-                    eventSourceHandler.onMessage(event, message);
-                } catch (Exception e) {
-                    onError(e);
+                    eventSourceHandler.onError(error);
+                } catch (Throwable e) {
+                    e.printStackTrace();
                 }
             }
         });
     }
 
     @Override
-    public void onError(final Throwable error) {
+    public synchronized void readComplete() {
+        if (batchEvents == null) {
+            return;
+        }
+        if (maxLingerMillis == 0) {
+            flush();
+        } else if (lingerTimeout == null) {
+            lingerTimeout = timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    synchronized (AsyncEventSourceHandler.this) {
+                        if (timeout == lingerTimeout) {
+                            flush();
+                        }
+                    }
+                }
+            }, maxLingerMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void flush() {
+        if (lingerTimeout != null) {
+            lingerTimeout.cancel();
+            lingerTimeout = null;
+        }
+        if (batchEvents == null) {
+            return;
+        }
+        final List<String> events = batchEvents;
+        final List<MessageEvent> messages = batchMessages;
+        batchEvents = null;
+        batchMessages = null;
         executor.execute(new Runnable() {
             @Override
             public void run() {
+                long start = metrics == EventSourceMetrics.NONE ? 0 : System.nanoTime();
                 try {
-                    eventSourceHandler.onError(error);
-                } catch (Throwable e) {
-                    e.printStackTrace();
+                    deliver(events, messages);
+                } finally {
+                    checkpoint(messages.get(messages.size() - 1));
+                    for (MessageEvent message : messages) {
+                        MessageEventPool.recycle(message);
+                    }
+                    delivered(events.size(), start);
                 }
             }
         });
     }
+
+    private void deliver(List<String> events, List<MessageEvent> messages) {
+        if (eventSourceHandler instanceof BatchEventSourceHandler) {
+            try {
+                ((BatchEventSourceHandler) eventSourceHandler).onMessages(events, messages);
+            } catch (Exception e) {
+                onError(e);
+            }
+        } else {
+            for (int i = 0; i < events.size(); i++) {
+                try {
+                    eventSourceHandler.onMessage(events.get(i), messages.get(i));
+                } catch (Exception e) {
+                    onError(e);
+                }
+            }
+        }
+    }
+
+    private void checkpoint(MessageEvent message) {
+        if (checkpointStore != null && message.getLastEventId() != null) {
+            checkpointStore.save(message.getLastEventId());
+        }
+    }
+
+    private void delivered(int count, long start) {
+        int pendingCount = watermarks.delivered(count);
+        if (metrics != EventSourceMetrics.NONE) {
+            long handlerNanos = (System.nanoTime() - start) / count;
+            for (int i = 0; i < count; i++) {
+                metrics.eventDelivered(pendingCount, handlerNanos);
+            }
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventSourceException;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.MessageEvent;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues events for a consumer thread that takes them one at a time, instead of calling a handler:
+ *
+ * <pre>
+ * BlockingDispatcher events = client.blockingDispatcher(1000);
+ * EventSource es = client.eventSource(reconnectionTimeMillis, uri, events);
+ * es.connect();
+ * for (BlockingDispatcher.Event event : events) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * The loop above carries on through reconnects without seeing the errors. To see them, take events yourself:
+ *
+ * <pre>
+ * while (true) {
+ *     try {
+ *         BlockingDispatcher.Event event = events.take();
+ *         if (event == null) {
+ *             break; // closed
+ *         }
+ *         ...
+ *     } catch (EventSourceException e) {
+ *         // The stream reconnects by itself
+ *     }
+ * }
+ * </pre>
+ *
+ * No thread or task is used per event or per stream - events go straight from the I/O thread into the queue - so a
+ * process can have one consumer per stream for many thousands of streams, e.g. on virtual threads. Waiting uses
+ * java.util.concurrent locks rather than monitors, so a waiting virtual thread doesn't pin its carrier thread.
+ *
+ * Reading from the connection is paused when the queue holds its capacity, and resumed when it is down to half.
+ * Errors are queued in order with the events and thrown by take as an EventSourceException - the stream reconnects
+ * and the consumer can carry on taking. A message id is checkpointed when the consumer comes back for the next
+ * event, i.e. once it is done with the message. Messages are never recycled, so don't give the EventSource a message
+ * pool.
+ *
+ * Connects are not reported unless the dispatcher is created to report them, in which case take returns
+ * {@link #CONNECTED} in order with the events each time the stream has connected.
+ */
+public class BlockingDispatcher implements EventDispatcher, Iterable<BlockingDispatcher.Event> {
+    /**
+     * An event name and its message.
+     */
+    public static class Event {
+        public final String name;
+        public final MessageEvent message;
+
+        public Event(String name, MessageEvent message) {
+            this.name = name;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + message;
+        }
+    }
+
+    /**
+     * Returned by take when the stream has connected, if the dispatcher reports connects.
+     */
+    public static final Event CONNECTED = new Event(null, null);
+
+    private final int capacity;
+    private final boolean reportConnects;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Events, and the Throwables passed to onError
+    private final Queue<Object> queue = new ArrayDeque<Object>();
+
+    private FlowControl flowControl;
+    private EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private CheckpointStore checkpointStore;
+    // Guarded by lock
+    private int eventCount;
+    private boolean suspended;
+    private boolean closed;
+    private String takenId;
+
+    /**
+     * @param capacity reading is paused when this many events are waiting to be taken
+     */
+    public BlockingDispatcher(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity reading is paused when this many events are waiting to be taken
+     * @param reportConnects true to return {@link #CONNECTED} from take each time the stream connects
+     */
+    public BlockingDispatcher(int capacity, boolean reportConnects) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        this.capacity = capacity;
+        this.reportConnects = reportConnects;
+    }
+
+    @Override
+    public void setFlowControl(FlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    @Override
+    public void setMetrics(EventSourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * Waits for the next event.
+     *
+     * @return the next event, or null if the dispatcher has been closed and all events have been taken
+     * @throws EventSourceException if the EventSource had an error. Taking can continue afterwards.
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public Event take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits for the next event, for at most the given time.
+     *
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next event, or null if there was none in time, or if the dispatcher has been closed and all events
+     * have been taken
+     * @throws EventSourceException if the EventSource had an error. Taking can continue afterwards.
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        Object item;
+        String checkpointId;
+        int pendingCount;
+        lock.lockInterruptibly();
+        try {
+            checkpointId = takenId;
+            takenId = null;
+            while ((item = queue.poll()) == null) {
+                if (closed || nanos <= 0) {
+                    break;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            if (item instanceof Event && item != CONNECTED) {
+                eventCount--;
+                takenId = ((Event) item).message.getLastEventId();
+                if (suspended && eventCount <= capacity / 2) {
+                    // Under the lock, so that it can't overtake the pause
+                    suspended = false;
+                    flowControl.setReadable(true);
+                }
+            }
+            pendingCount = eventCount;
+        } finally {
+            lock.unlock();
+        }
+        if (checkpointStore != null && checkpointId != null) {
+            checkpointStore.save(checkpointId);
+        }
+        if (item == CONNECTED) {
+            return CONNECTED;
+        }
+        if (item instanceof Event) {
+            metrics.eventDelivered(pendingCount, 0);
+            return (Event) item;
+        }
+        if (item != null) {
+            throw new EventSourceException("EventSource error", (Throwable) item);
+        }
+        return null;
+    }
+
+    /**
+     * Wakes up the consumer once the remaining events have been taken. Call this after closing the EventSource.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be taken
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return eventCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the events, until the dispatcher is closed. hasNext waits for the next event, and skips errors, as the
+     * stream reconnects after them - use {@link #take()} to see them. An interrupt ends the iteration, with the
+     * thread's interrupt flag set.
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        return new Iterator<Event>() {
+            private Event next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    try {
+                        next = take();
+                        if (next == null) {
+                            return false;
+                        }
+                    } catch (EventSourceException e) {
+                        // Skipped, the stream reconnects
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Event event = next;
+                next = null;
+                return event;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void onConnect() {
+        if (!reportConnects) {
+            return;
+        }
+        lock.lock();
+        try {
+            queue.add(CONNECTED);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onMessage(String event, MessageEvent message) {
+        int pendingCount;
+        lock.lock();
+        try {
+            queue.add(new Event(event, message));
+            pendingCount = ++eventCount;
+            if (!suspended && eventCount >= capacity) {
+                suspended = true;
+                flowControl.setReadable(false);
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        metrics.eventQueued(pendingCount);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        lock.lock();
+        try {
+            queue.add(t);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void readComplete() {
+    }
+}
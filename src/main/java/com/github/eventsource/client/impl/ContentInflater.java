@@ -0,0 +1,142 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.EventSourceException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a gzip or deflate encoded response body as it arrives and feeds it to an {@link EventStreamParser}.
+ * Each network read is inflated as far as the compressed data allows, so events reach the parser as soon as the
+ * server has flushed them.
+ */
+public class ContentInflater {
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int FHCRC = 2;
+
+    private final boolean gzip;
+    private final byte[] output = new byte[8192];
+    // The start of the body, until the gzip or zlib header has been seen in full
+    private byte[] header = new byte[0];
+    private Inflater inflater;
+
+    private ContentInflater(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * @param contentEncoding the Content-Encoding header, or null
+     * @return an inflater for the encoding, or null if the body isn't compressed
+     * @throws EventSourceException if the encoding isn't supported
+     */
+    public static ContentInflater forEncoding(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.equalsIgnoreCase("identity")) {
+            return null;
+        }
+        if (contentEncoding.equalsIgnoreCase("gzip") || contentEncoding.equalsIgnoreCase("x-gzip")) {
+            return new ContentInflater(true);
+        }
+        if (contentEncoding.equalsIgnoreCase("deflate")) {
+            return new ContentInflater(false);
+        }
+        throw new EventSourceException("Unsupported Content-Encoding: " + contentEncoding);
+    }
+
+    public void bytes(byte[] bytes, int offset, int length, EventStreamParser parser) {
+        if (inflater == null) {
+            byte[] start = new byte[header.length + length];
+            System.arraycopy(header, 0, start, 0, header.length);
+            System.arraycopy(bytes, offset, start, header.length, length);
+            header = start;
+            int headerLength = gzip ? gzipHeaderLength(start) : zlibHeaderLength(start);
+            if (headerLength == -1) {
+                return;
+            }
+            // A deflate body should be in the zlib format, but some servers send raw deflate data
+            inflater = new Inflater(gzip || headerLength == 0);
+            bytes = start;
+            offset = gzip ? headerLength : 0;
+            length = start.length - offset;
+            header = null;
+        }
+        if (inflater.finished()) {
+            // The gzip trailer
+            return;
+        }
+        inflater.setInput(bytes, offset, length);
+        try {
+            int n;
+            while ((n = inflater.inflate(output)) > 0) {
+                parser.bytes(output, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new EventSourceException("Invalid compressed content", e);
+        }
+        if (inflater.needsDictionary()) {
+            throw new EventSourceException("Compressed content needs a preset dictionary");
+        }
+    }
+
+    /**
+     * Releases the inflater's native memory.
+     */
+    public void end() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return the length of the gzip header, or -1 if it isn't complete yet
+     */
+    private static int gzipHeaderLength(byte[] b) {
+        if (b.length < 10) {
+            return -1;
+        }
+        if ((b[0] & 0xff) != 0x1f || (b[1] & 0xff) != 0x8b || b[2] != 8) {
+            throw new EventSourceException("Invalid gzip header");
+        }
+        int flags = b[3] & 0xff;
+        int i = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (b.length < i + 2) {
+                return -1;
+            }
+            i += 2 + ((b[i] & 0xff) | ((b[i + 1] & 0xff) << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            i = skipZeroTerminated(b, i);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            i = skipZeroTerminated(b, i);
+        }
+        if ((flags & FHCRC) != 0) {
+            i += 2;
+        }
+        return i <= b.length ? i : -1;
+    }
+
+    /**
+     * @return 2 if the data starts with a zlib header, 0 if it is raw deflate data, or -1 if it's too early to say
+     */
+    private static int zlibHeaderLength(byte[] b) {
+        if (b.length < 2) {
+            return -1;
+        }
+        int cmf = b[0] & 0xff;
+        int flg = b[1] & 0xff;
+        return (cmf & 0x0f) == 8 && (cmf * 256 + flg) % 31 == 0 ? 2 : 0;
+    }
+
+    private static int skipZeroTerminated(byte[] b, int i) {
+        while (i < b.length) {
+            if (b[i++] == 0) {
+                return i;
+            }
+        }
+        // Past the end, so the header is incomplete
+        return b.length + 1;
+    }
+}
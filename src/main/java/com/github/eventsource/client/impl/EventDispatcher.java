@@ -0,0 +1,37 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
+
+/**
+ * Receives events from the {@link EventStreamParser} on the I/O thread and hands them over to the user's
+ * {@link EventSourceHandler}.
+ */
+public interface EventDispatcher extends EventSourceHandler {
+    /**
+     * Called on the I/O thread once all the events parsed from one network read have been passed on.
+     */
+    void readComplete();
+
+    /**
+     * Called once, before connecting.
+     *
+     * @param flowControl can be used to pause reading while the handler catches up
+     */
+    void setFlowControl(FlowControl flowControl);
+
+    /**
+     * Called before connecting, if the EventSource has metrics.
+     *
+     * @param metrics receives the queue depth and the time spent in the handler
+     */
+    void setMetrics(EventSourceMetrics metrics);
+
+    /**
+     * Called before connecting, if the EventSource has a checkpoint store.
+     *
+     * @param checkpointStore receives the id of each message once the handler has returned
+     */
+    void setCheckpointStore(CheckpointStore checkpointStore);
+}
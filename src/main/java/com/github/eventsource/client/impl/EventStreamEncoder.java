@@ -0,0 +1,94 @@
+package com.github.eventsource.client.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Writes events in the <a href="http://dev.w3.org/html5/eventsource/#parsing-an-event-stream">event stream
+ * format</a> read by {@link EventStreamParser}, for servers and tests. Each event is encoded to bytes once, so that a
+ * server can send the same bytes to every connection.
+ */
+public class EventStreamEncoder {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String DEFAULT_EVENT = "message";
+
+    private EventStreamEncoder() {
+    }
+
+    /**
+     * @param event the event name, or null for the default ("message")
+     * @param id the event id, or null to leave the last event id as it is
+     * @param data the data. Lines may end in CR, LF or CRLF - they all arrive as LF.
+     * @return the UTF-8 encoded event, ending in a blank line
+     * @throws IllegalArgumentException if the event name or id has a line break
+     */
+    public static byte[] encode(String event, String id, String data) {
+        StringBuilder text = new StringBuilder(data.length() + 32);
+        if (event != null && !event.equals(DEFAULT_EVENT)) {
+            field(text, "event", singleLine("event", event));
+        }
+        if (id != null) {
+            field(text, "id", singleLine("id", id));
+        }
+        int lineStart = 0;
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (c == '\r' || c == '\n') {
+                field(text, "data", data.substring(lineStart, i));
+                if (c == '\r' && i + 1 < data.length() && data.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        field(text, "data", data.substring(lineStart));
+        text.append('\n');
+        return text.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @param millis the reconnection time the client should use
+     * @return a retry field, on its own
+     */
+    public static byte[] retry(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative retry: " + millis);
+        }
+        return ("retry: " + millis + "\n\n").getBytes(UTF_8);
+    }
+
+    /**
+     * Comments are ignored by clients, so they make good heartbeats on otherwise idle connections.
+     *
+     * @param comment the comment, which may have line breaks
+     * @return comment lines
+     */
+    public static byte[] comment(String comment) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(comment.length() + 3);
+        byte[] bytes = comment.replace("\r\n", "\n").replace('\r', '\n').getBytes(UTF_8);
+        out.write(':');
+        for (byte b : bytes) {
+            out.write(b);
+            if (b == '\n') {
+                out.write(':');
+            }
+        }
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    private static void field(StringBuilder text, String name, String value) {
+        text.append(name);
+        if (value.length() > 0) {
+            text.append(": ").append(value);
+        }
+        text.append('\n');
+    }
+
+    private static String singleLine(String name, String value) {
+        if (value.indexOf('\n') != -1 || value.indexOf('\r') != -1) {
+            throw new IllegalArgumentException("The " + name + " can't have line breaks: " + value);
+        }
+        return value;
+    }
+}
@@ -1,32 +1,64 @@
 package com.github.eventsource.client.impl;
 
+import com.github.eventsource.client.EventFilter;
+import com.github.eventsource.client.EventSourceException;
 import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
 import com.github.eventsource.client.MessageEvent;
+import com.github.eventsource.client.journal.JournalWriter;
 
-import java.io.StringReader;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.nio.charset.Charset;
 
 /**
  * <a href="http://dev.w3.org/html5/eventsource/#event-stream-interpretation">Interprets an event stream</a>
  * and dispatches messages to the {@link com.github.eventsource.client.EventSourceHandler}.
+ *
+ * The stream is fed as raw bytes with {@link #bytes(byte[], int, int)}, in whatever chunks the network delivers.
+ * Lines and field names are recognised on the bytes themselves - only the data, id and event values are decoded
+ * to Strings, once per event. In raw data mode the data isn't decoded at all: the message gets the UTF-8 bytes
+ * and decodes them if and when the handler asks for a String.
  */
 public class EventStreamParser {
-    private static final String DATA = "data";
-    private static final String ID = "id";
-    private static final String EVENT = "event";
-    private static final String RETRY = "retry";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] DATA = ascii("data");
+    private static final byte[] ID = ascii("id");
+    private static final byte[] EVENT = ascii("event");
+    private static final byte[] RETRY = ascii("retry");
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COLON = ':';
+    private static final byte SPACE = ' ';
 
     private static final String DEFAULT_EVENT = "message";
-    private static final String EMPTY_STRING = "";
-    private static final Pattern DIGITS_ONLY = Pattern.compile("^[\\d]+$");
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
 
     private final EventSourceHandler eventSourceHandler;
     private final ConnectionHandler connectionHandler;
     private final String origin;
 
-    private StringBuffer data = new StringBuffer();
+    // A line that didn't end in the last chunk
+    private byte[] line = new byte[INITIAL_BUFFER_SIZE];
+    private int lineLength;
+    private boolean skipLineFeed;
+
+    private byte[] data = new byte[INITIAL_BUFFER_SIZE];
+    private int dataLength;
     private String lastEventId;
     private String eventName = DEFAULT_EVENT;
+    private boolean rawData;
+    private MessageEventPool messagePool;
+    private EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private JournalWriter journal;
+    private EventFilter eventFilter;
+    private int lineCount;
+
+    // The last non-default event name, so that streams reusing a few names don't decode them for every event
+    private byte[] cachedEventNameBytes = new byte[0];
+    private String cachedEventName = "";
 
     public EventStreamParser(String origin, EventSourceHandler eventSourceHandler, ConnectionHandler connectionHandler) {
         this.eventSourceHandler = eventSourceHandler;
@@ -34,61 +66,305 @@ public class EventStreamParser {
         this.connectionHandler = connectionHandler;
     }
 
+    /**
+     * @param rawData true to create messages that keep the data as bytes, see
+     * {@link MessageEvent#MessageEvent(byte[], String, String)}
+     */
+    public void setRawData(boolean rawData) {
+        this.rawData = rawData;
+    }
+
+    /**
+     * @param messagePool where to take messages from, or null to create a new message for each event. Pooled
+     * messages keep the data as bytes, like in raw data mode, and must be recycled after delivery with
+     * {@link MessageEventPool#recycle(MessageEvent)}.
+     */
+    public void setMessagePool(MessageEventPool messagePool) {
+        this.messagePool = messagePool;
+    }
+
+    /**
+     * @param metrics receives the number of lines and the time taken to parse each chunk
+     */
+    public void setMetrics(EventSourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param journal where to record each event before it is dispatched, or null
+     * @throws IllegalStateException if the journal is already used by another parser
+     */
+    public void setJournal(JournalWriter journal) {
+        if (journal != null) {
+            journal.attach(this);
+        }
+        if (this.journal != null && this.journal != journal) {
+            this.journal.detach(this);
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * @param eventFilter decides which events are dispatched, or null to dispatch all of them
+     */
+    public void setEventFilter(EventFilter eventFilter) {
+        this.eventFilter = eventFilter;
+    }
+
+    /**
+     * Parses a chunk of the stream. Lines may be split across chunks; CR, LF and CRLF are all line terminators.
+     *
+     * @param bytes the stream content
+     * @param offset where the chunk starts in bytes
+     * @param length the length of the chunk
+     */
+    public void bytes(byte[] bytes, int offset, int length) {
+        if (metrics == EventSourceMetrics.NONE) {
+            parse(bytes, offset, length);
+        } else {
+            long start = System.nanoTime();
+            lineCount = 0;
+            parse(bytes, offset, length);
+            metrics.parsed(lineCount, System.nanoTime() - start);
+        }
+    }
+
+    private void parse(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int position = offset;
+        if (skipLineFeed && position < end) {
+            if (bytes[position] == LF) {
+                position++;
+            }
+            skipLineFeed = false;
+        }
+        int lineStart = position;
+        for (int i = position; i < end; i++) {
+            byte b = bytes[i];
+            if (b == LF || b == CR) {
+                endOfLine(bytes, lineStart, i);
+                if (b == CR) {
+                    if (i + 1 < end) {
+                        if (bytes[i + 1] == LF) {
+                            i++;
+                        }
+                    } else {
+                        skipLineFeed = true;
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < end) {
+            appendToLine(bytes, lineStart, end - lineStart);
+        }
+    }
+
+    /**
+     * Parses a single line, without its line terminator.
+     *
+     * @param line the line
+     */
     public void line(String line) {
-        int colonIndex;
-        if (line.trim().isEmpty()) {
+        byte[] bytes = line.getBytes(UTF_8);
+        processLine(bytes, 0, bytes.length);
+    }
+
+    public void lines(String lines) {
+        String[] lineArray = lines.split("\n", -1);
+        for (String line : lineArray) {
+            line(line);
+        }
+    }
+
+    /**
+     * Discards any partially received line and event, e.g. after the connection was lost.
+     * The last event id is kept.
+     */
+    public void reset() {
+        lineLength = 0;
+        skipLineFeed = false;
+        dataLength = 0;
+        eventName = DEFAULT_EVENT;
+    }
+
+    private void endOfLine(byte[] bytes, int start, int end) {
+        lineCount++;
+        if (lineLength == 0) {
+            processLine(bytes, start, end);
+        } else {
+            appendToLine(bytes, start, end - start);
+            int length = lineLength;
+            lineLength = 0;
+            processLine(line, 0, length);
+        }
+    }
+
+    private void appendToLine(byte[] bytes, int start, int length) {
+        line = ensureCapacity(line, lineLength, length);
+        System.arraycopy(bytes, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void processLine(byte[] bytes, int start, int end) {
+        int fieldStart = skipWhitespace(bytes, start, end);
+        if (fieldStart == end) {
             dispatchEvent();
-        } else if (line.startsWith(":")) {
+        } else if (bytes[start] == COLON) {
             // ignore
-        } else if ((colonIndex = line.indexOf(":")) != -1) {
-            String field = line.substring(0, colonIndex);
-            String value = line.substring(colonIndex + 1).replaceFirst(" ", EMPTY_STRING);
-            processField(field, value);
         } else {
-            processField(line.trim(), EMPTY_STRING); // The spec doesn't say we need to trim the line, but I assume that's an oversight.
+            int colonIndex = indexOf(bytes, start, end, COLON);
+            if (colonIndex != -1) {
+                int valueStart = colonIndex + 1;
+                if (valueStart < end && bytes[valueStart] == SPACE) {
+                    valueStart++;
+                }
+                processField(bytes, start, colonIndex, valueStart, end);
+            } else {
+                // The spec doesn't say we need to trim the line, but I assume that's an oversight.
+                int fieldEnd = end;
+                while (fieldEnd > fieldStart && bytes[fieldEnd - 1] >= 0 && bytes[fieldEnd - 1] <= SPACE) {
+                    fieldEnd--;
+                }
+                processField(bytes, fieldStart, fieldEnd, end, end);
+            }
         }
     }
 
-    private void processField(String field, String value) {
-        if (DATA.equals(field)) {
-            data.append(value).append("\n");
-        } else if (ID.equals(field)) {
-            lastEventId = value;
-        } else if (EVENT.equals(field)) {
-            eventName = value;
-        } else if (RETRY.equals(field) && isNumber(value)) {
-            connectionHandler.setReconnectionTimeMillis(Long.parseLong(value));
+    private void processField(byte[] bytes, int fieldStart, int fieldEnd, int valueStart, int valueEnd) {
+        if (matches(DATA, bytes, fieldStart, fieldEnd)) {
+            int length = valueEnd - valueStart;
+            data = ensureCapacity(data, dataLength, length + 1);
+            System.arraycopy(bytes, valueStart, data, dataLength, length);
+            dataLength += length;
+            data[dataLength++] = LF;
+        } else if (matches(ID, bytes, fieldStart, fieldEnd)) {
+            lastEventId = new String(bytes, valueStart, valueEnd - valueStart, UTF_8);
+        } else if (matches(EVENT, bytes, fieldStart, fieldEnd)) {
+            eventName = eventName(bytes, valueStart, valueEnd);
+        } else if (matches(RETRY, bytes, fieldStart, fieldEnd)) {
+            long retry = parseDigits(bytes, valueStart, valueEnd);
+            if (retry != -1) {
+                connectionHandler.setReconnectionTimeMillis(retry);
+            }
         }
     }
 
-    private boolean isNumber(String value) {
-        return DIGITS_ONLY.matcher(value).matches();
+    private String eventName(byte[] bytes, int start, int end) {
+        if (!matches(cachedEventNameBytes, bytes, start, end)) {
+            cachedEventNameBytes = new byte[end - start];
+            System.arraycopy(bytes, start, cachedEventNameBytes, 0, cachedEventNameBytes.length);
+            cachedEventName = new String(cachedEventNameBytes, UTF_8);
+        }
+        return cachedEventName;
     }
 
     private void dispatchEvent() {
-        if (data.length() == 0) {
+        if (dataLength == 0) {
+            eventName = DEFAULT_EVENT;
             return;
         }
-        String dataString = data.toString();
-        if (dataString.endsWith("\n")) {
-            dataString = dataString.substring(0, dataString.length() - 1);
+        String event = eventName.length() == 0 ? DEFAULT_EVENT : eventName;
+        if (eventFilter != null && !eventFilter.accepts(event)) {
+            // Dropped without decoding the data, but its id still counts
+            resetEvent();
+            connectionHandler.setLastEventId(lastEventId);
+            return;
+        }
+        if (journal != null) {
+            try {
+                journal.append(origin, System.currentTimeMillis(), event, lastEventId, data, 0, dataLength - 1);
+            } catch (IOException e) {
+                eventSourceHandler.onError(new EventSourceException("Failed to journal event", e));
+            }
         }
-        MessageEvent message = new MessageEvent(dataString, lastEventId, origin);
+        // Drop the trailing newline
+        MessageEvent message;
+        if (messagePool != null) {
+            PooledMessageEvent pooled = messagePool.acquire();
+            pooled.set(data, 0, dataLength - 1, lastEventId, origin);
+            message = pooled;
+        } else if (rawData) {
+            byte[] dataBytes = new byte[dataLength - 1];
+            System.arraycopy(data, 0, dataBytes, 0, dataBytes.length);
+            message = new MessageEvent(dataBytes, lastEventId, origin);
+        } else {
+            message = new MessageEvent(new String(data, 0, dataLength - 1, UTF_8), lastEventId, origin);
+        }
+        resetEvent();
         connectionHandler.setLastEventId(lastEventId);
         try {
-            eventSourceHandler.onMessage(eventName, message);
+            eventSourceHandler.onMessage(event, message);
         } catch (Exception e) {
             eventSourceHandler.onError(e);
         }
-        data = new StringBuffer();
+    }
+
+    private void resetEvent() {
+        dataLength = 0;
         eventName = DEFAULT_EVENT;
+        if (data.length > MAX_RETAINED_BUFFER_SIZE) {
+            data = new byte[INITIAL_BUFFER_SIZE];
+        }
     }
 
-    public void lines(String lines) {
-        String[] lineArray = lines.split("\n", -1);
-        for (String line : lineArray) {
-            line(line);
+    /**
+     * @return the value of a non-empty, all ASCII digits field, or -1 if it isn't one (or doesn't fit in a long)
+     */
+    private static long parseDigits(byte[] bytes, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
         }
+        return value;
     }
 
+    private static boolean matches(byte[] expected, byte[] bytes, int start, int end) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte b) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] bytes, int start, int end) {
+        int i = start;
+        while (i < end && bytes[i] >= 0 && bytes[i] <= SPACE) {
+            i++;
+        }
+        return i;
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int used, int needed) {
+        if (used + needed <= buffer.length) {
+            return buffer;
+        }
+        byte[] bigger = new byte[Math.max(buffer.length * 2, used + needed)];
+        System.arraycopy(buffer, 0, bigger, 0, used);
+        return bigger;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(Charset.forName("US-ASCII"));
+    }
 }
@@ -0,0 +1,252 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.BadResponseException;
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventFilter;
+import com.github.eventsource.client.EventSourceException;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.ReconnectionPolicy;
+import com.github.eventsource.client.journal.JournalWriter;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Everything an EventSource does that doesn't depend on how bytes get to and from the server: the request headers,
+ * checking the response, inflating and parsing the stream, and working out when to reconnect. A transport opens a
+ * connection, writes the request, feeds what it reads to {@link #bytes(byte[], int, int)} - or, if it parses HTTP
+ * itself, to {@link #response(int, Map)} and {@link #content(byte[], int, int)} - and calls {@link #closed()} when
+ * the connection is gone.
+ *
+ * A session is used by one connection at a time, and its methods are called from that connection's I/O thread.
+ */
+public class EventStreamSession implements ConnectionHandler {
+    private final URI uri;
+    private final EventDispatcher dispatcher;
+    private final EventStreamParser parser;
+    private final HttpResponseParser responseParser;
+
+    private long reconnectionTimeMillis;
+    private ReconnectionPolicy reconnectionPolicy = ReconnectionPolicy.CONSTANT;
+    private int reconnectAttempt;
+    private long reconnectDelayMillis;
+    private long openedAt;
+    private String lastEventId;
+    private boolean eventStreamOk;
+    private boolean ended;
+    private ContentInflater inflater;
+    private EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private Throwable closeCause;
+
+    public EventStreamSession(URI uri, EventDispatcher dispatcher, long reconnectionTimeMillis) {
+        this.uri = uri;
+        this.dispatcher = dispatcher;
+        this.reconnectionTimeMillis = reconnectionTimeMillis;
+        this.parser = new EventStreamParser(uri.toString(), dispatcher, this);
+        this.responseParser = new HttpResponseParser(new ResponseHandler());
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the headers of the next request, in order. Includes Host, which some HTTP clients set themselves.
+     */
+    public Map<String, String> requestHeaders() {
+        String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        headers.put("Accept", "text/event-stream");
+        headers.put("Host", host);
+        headers.put("Origin", uri.getScheme() + "://" + host);
+        headers.put("Cache-Control", "no-cache");
+        headers.put("Accept-Encoding", "gzip, deflate");
+        if (lastEventId != null) {
+            headers.put("Last-Event-ID", lastEventId);
+        }
+        return headers;
+    }
+
+    /**
+     * Called when a new connection has been made, before the request is written.
+     */
+    public void connected() {
+        eventStreamOk = false;
+        ended = false;
+        responseParser.reset();
+        parser.reset();
+    }
+
+    /**
+     * Called with the raw bytes of the HTTP response, as they are read.
+     *
+     * @return false if the server has ended the response and the connection should be closed
+     * @throws Exception if the response isn't an event stream, or can't be inflated
+     */
+    public boolean bytes(byte[] bytes, int offset, int length) throws Exception {
+        metrics.bytesRead(length);
+        responseParser.bytes(bytes, offset, length);
+        if (eventStreamOk) {
+            dispatcher.readComplete();
+        }
+        return !ended;
+    }
+
+    /**
+     * Called by transports that parse HTTP themselves, when the response headers have arrived.
+     *
+     * @param status the status code
+     * @param headers the headers, with lower case names
+     * @throws BadResponseException if the response isn't an event stream
+     */
+    public void response(int status, Map<String, String> headers) throws Exception {
+        if (status != 200) {
+            throw new BadResponseException("Bad status from " + uri + ": " + status, status);
+        }
+        String contentType = headers.get("content-type");
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("text/event-stream")) {
+            throw new BadResponseException("Not event stream: " + uri + " (expected Content-Type: text/event-stream, got " + contentType + ")", status);
+        }
+        inflater = ContentInflater.forEncoding(headers.get("content-encoding"));
+        eventStreamOk = true;
+        openedAt = System.currentTimeMillis();
+        metrics.connected();
+        dispatcher.onConnect();
+    }
+
+    /**
+     * Called by transports that parse HTTP themselves, with each piece of the response body. Content that arrives
+     * before an accepted {@link #response(int, Map)} is ignored.
+     */
+    public void content(byte[] bytes, int offset, int length) throws Exception {
+        metrics.bytesRead(length);
+        decode(bytes, offset, length);
+    }
+
+    private void decode(byte[] bytes, int offset, int length) throws Exception {
+        if (!eventStreamOk) {
+            return;
+        }
+        if (inflater != null) {
+            inflater.bytes(bytes, offset, length, parser);
+        } else {
+            parser.bytes(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Called by transports that parse HTTP themselves, when all the content of one read has been passed on.
+     */
+    public void readComplete() {
+        if (eventStreamOk) {
+            dispatcher.readComplete();
+        }
+    }
+
+    /**
+     * Passes an error to the handler. The transport should close the connection afterwards.
+     *
+     * @param error what went wrong
+     */
+    public void failed(Throwable error) {
+        if (error instanceof ConnectException) {
+            error = new EventSourceException("Failed to connect to " + uri, error);
+        }
+        closeCause = error;
+        dispatcher.onError(error);
+    }
+
+    /**
+     * Called when a connection has been closed, whether or not it will be reconnected.
+     */
+    public void closed() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        if (openedAt != 0 && System.currentTimeMillis() - openedAt >= reconnectionPolicy.getResetAfterMillis()) {
+            reconnectAttempt = 0;
+            reconnectDelayMillis = 0;
+        }
+        openedAt = 0;
+    }
+
+    /**
+     * Called once per reconnect, after {@link #closed()}.
+     *
+     * @return how long to wait before connecting again
+     */
+    public long reconnectDelayMillis() {
+        reconnectAttempt++;
+        // The reconnection time - the server's retry value if it sent one - is the shortest delay
+        reconnectDelayMillis = Math.max(reconnectionTimeMillis, reconnectionPolicy.delayMillis(reconnectAttempt, reconnectDelayMillis, reconnectionTimeMillis));
+        metrics.reconnecting(closeCause, reconnectDelayMillis);
+        closeCause = null;
+        return reconnectDelayMillis;
+    }
+
+    @Override
+    public void setReconnectionTimeMillis(long reconnectionTimeMillis) {
+        this.reconnectionTimeMillis = reconnectionTimeMillis;
+    }
+
+    @Override
+    public void setLastEventId(String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public void setReconnectionPolicy(ReconnectionPolicy reconnectionPolicy) {
+        this.reconnectionPolicy = reconnectionPolicy;
+    }
+
+    public void setMetrics(EventSourceMetrics metrics) {
+        this.metrics = metrics;
+        parser.setMetrics(metrics);
+        dispatcher.setMetrics(metrics);
+    }
+
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        String checkpoint = checkpointStore.load();
+        if (checkpoint != null) {
+            lastEventId = checkpoint;
+        }
+        dispatcher.setCheckpointStore(checkpointStore);
+    }
+
+    public void setRawData(boolean rawData) {
+        parser.setRawData(rawData);
+    }
+
+    public void setMessagePool(MessageEventPool messagePool) {
+        parser.setMessagePool(messagePool);
+    }
+
+    public void setJournal(JournalWriter journal) {
+        parser.setJournal(journal);
+    }
+
+    public void setEventFilter(EventFilter eventFilter) {
+        parser.setEventFilter(eventFilter);
+    }
+
+    private class ResponseHandler implements HttpResponseParser.Handler {
+        @Override
+        public void onResponse(int status, Map<String, String> headers) throws Exception {
+            response(status, headers);
+        }
+
+        @Override
+        public void onContent(byte[] bytes, int offset, int length) throws Exception {
+            decode(bytes, offset, length);
+        }
+
+        @Override
+        public void onEnd() throws Exception {
+            // The server ended the stream, but kept the connection open
+            ended = true;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.eventsource.client.impl;
+
+/**
+ * Lets a dispatcher stop the connection from reading when its consumer falls behind, so that TCP flow control
+ * pushes back on the server instead of events piling up in memory.
+ */
+public interface FlowControl {
+    /**
+     * May be called from any thread. The setting survives reconnects.
+     *
+     * @param readable false to stop reading from the socket, true to start again
+     */
+    void setReadable(boolean readable);
+}
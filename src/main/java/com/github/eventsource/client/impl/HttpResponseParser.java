@@ -0,0 +1,233 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.EventSourceException;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses an HTTP/1.x response as its bytes arrive. The body may have a Content-Length, be chunked or last until the
+ * connection is closed - either way it is handed to the {@link Handler} as it arrives, never buffered until the
+ * response is complete.
+ */
+public class HttpResponseParser {
+    public interface Handler {
+        /**
+         * @param status the status code
+         * @param headers the headers, with lower case names. Repeated headers are joined with commas.
+         */
+        void onResponse(int status, Map<String, String> headers) throws Exception;
+
+        void onContent(byte[] bytes, int offset, int length) throws Exception;
+
+        /**
+         * Called when a response with a Content-Length or chunked body is complete.
+         */
+        void onEnd() throws Exception;
+    }
+
+    private enum State {
+        STATUS_LINE, HEADER, CONTENT, CONTENT_UNTIL_CLOSE, CHUNK_SIZE, CHUNK, CHUNK_END, TRAILER, END
+    }
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final Handler handler;
+
+    private State state = State.STATUS_LINE;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private int status;
+    private Map<String, String> headers;
+    private String lastHeaderName;
+    private long remaining;
+
+    public HttpResponseParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Prepares for a new response.
+     */
+    public void reset() {
+        state = State.STATUS_LINE;
+        lineLength = 0;
+        headers = null;
+        lastHeaderName = null;
+    }
+
+    /**
+     * Parses the next bytes of the response.
+     *
+     * @param bytes the response content
+     * @param offset where the chunk starts in bytes
+     * @param length the length of the chunk
+     * @throws EventSourceException if the response isn't valid HTTP
+     */
+    public void bytes(byte[] bytes, int offset, int length) throws Exception {
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            switch (state) {
+                case CONTENT_UNTIL_CLOSE:
+                    handler.onContent(bytes, position, end - position);
+                    return;
+                case CONTENT:
+                case CHUNK: {
+                    int n = (int) Math.min(remaining, end - position);
+                    handler.onContent(bytes, position, n);
+                    position += n;
+                    remaining -= n;
+                    if (remaining == 0) {
+                        if (state == State.CONTENT) {
+                            end();
+                        } else {
+                            state = State.CHUNK_END;
+                        }
+                    }
+                    break;
+                }
+                case END:
+                    // Nothing may follow the response on an event stream connection
+                    return;
+                default:
+                    position = readLine(bytes, position, end);
+            }
+        }
+    }
+
+    private int readLine(byte[] bytes, int start, int end) throws Exception {
+        int i = start;
+        while (i < end && bytes[i] != LF) {
+            i++;
+        }
+        int length = i - start;
+        if (lineLength + length > MAX_LINE_LENGTH) {
+            throw new EventSourceException("HTTP response line too long");
+        }
+        if (lineLength + length > line.length) {
+            byte[] bigger = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, bigger, 0, lineLength);
+            line = bigger;
+        }
+        System.arraycopy(bytes, start, line, lineLength, length);
+        lineLength += length;
+        if (i == end) {
+            return end;
+        }
+        int lineEnd = lineLength > 0 && line[lineLength - 1] == CR ? lineLength - 1 : lineLength;
+        String text = new String(line, 0, lineEnd, US_ASCII);
+        lineLength = 0;
+        line(text);
+        return i + 1;
+    }
+
+    private void line(String text) throws Exception {
+        switch (state) {
+            case STATUS_LINE:
+                statusLine(text);
+                break;
+            case HEADER:
+                if (text.length() == 0) {
+                    headersDone();
+                } else {
+                    header(text);
+                }
+                break;
+            case CHUNK_SIZE:
+                chunkSize(text);
+                break;
+            case CHUNK_END:
+                if (text.length() != 0) {
+                    throw new EventSourceException("Expected end of chunk, got: " + text);
+                }
+                state = State.CHUNK_SIZE;
+                break;
+            case TRAILER:
+                if (text.length() == 0) {
+                    end();
+                }
+                break;
+        }
+    }
+
+    private void statusLine(String text) {
+        // HTTP/1.1 200 OK - the reason phrase is optional
+        String[] parts = text.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+            throw new EventSourceException("Not HTTP? " + text);
+        }
+        try {
+            status = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new EventSourceException("Not HTTP? " + text);
+        }
+        headers = new HashMap<String, String>();
+        state = State.HEADER;
+    }
+
+    private void header(String text) {
+        if ((text.charAt(0) == ' ' || text.charAt(0) == '\t') && lastHeaderName != null) {
+            // Continuation of a folded header
+            headers.put(lastHeaderName, headers.get(lastHeaderName) + " " + text.trim());
+            return;
+        }
+        int colon = text.indexOf(':');
+        if (colon <= 0) {
+            throw new EventSourceException("Invalid HTTP header: " + text);
+        }
+        String name = text.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+        String value = text.substring(colon + 1).trim();
+        String previous = headers.get(name);
+        headers.put(name, previous == null ? value : previous + "," + value);
+        lastHeaderName = name;
+    }
+
+    private void headersDone() throws Exception {
+        String transferEncoding = headers.get("transfer-encoding");
+        String contentLength = headers.get("content-length");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            state = State.CHUNK_SIZE;
+        } else if (contentLength != null) {
+            try {
+                remaining = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                remaining = -1;
+            }
+            if (remaining < 0) {
+                throw new EventSourceException("Invalid Content-Length: " + contentLength);
+            }
+            state = State.CONTENT;
+        } else {
+            state = State.CONTENT_UNTIL_CLOSE;
+        }
+        handler.onResponse(status, headers);
+        if (state == State.CONTENT && remaining == 0) {
+            end();
+        }
+    }
+
+    private void chunkSize(String text) throws Exception {
+        int extension = text.indexOf(';');
+        String size = (extension == -1 ? text : text.substring(0, extension)).trim();
+        try {
+            remaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            remaining = -1;
+        }
+        if (remaining < 0) {
+            throw new EventSourceException("Invalid chunk size: " + text);
+        }
+        state = remaining == 0 ? State.TRAILER : State.CHUNK;
+    }
+
+    private void end() throws Exception {
+        state = State.END;
+        handler.onEnd();
+    }
+}
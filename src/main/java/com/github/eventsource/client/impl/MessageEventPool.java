@@ -0,0 +1,62 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.MessageEvent;
+
+/**
+ * A bounded pool of {@link MessageEvent}s for one connection. The parser takes messages from it on the I/O thread,
+ * and dispatchers give them back with {@link #recycle(MessageEvent)} once the handler's onMessage has returned.
+ *
+ * When the pool is empty a new message is created, and messages given back to a full pool are left to the
+ * garbage collector, so the pool only needs to be as large as the number of messages usually in flight.
+ */
+public class MessageEventPool {
+    private final PooledMessageEvent[] free;
+    private int size;
+
+    /**
+     * @param capacity the maximum number of idle messages kept for reuse
+     */
+    public MessageEventPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.free = new PooledMessageEvent[capacity];
+    }
+
+    /**
+     * Gives a message back to its pool, if it came from one.
+     *
+     * @param message a message that has been delivered
+     */
+    public static void recycle(MessageEvent message) {
+        if (message instanceof PooledMessageEvent) {
+            PooledMessageEvent pooled = (PooledMessageEvent) message;
+            pooled.clear();
+            pooled.pool.release(pooled);
+        }
+    }
+
+    /**
+     * @return the number of idle messages in the pool
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    PooledMessageEvent acquire() {
+        synchronized (this) {
+            if (size > 0) {
+                PooledMessageEvent message = free[--size];
+                free[size] = null;
+                return message;
+            }
+        }
+        return new PooledMessageEvent(this);
+    }
+
+    private synchronized void release(PooledMessageEvent message) {
+        if (size < free.length) {
+            free[size++] = message;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.KeyExtractor;
+import com.github.eventsource.client.MessageEvent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Hands events over to an {@link EventSourceHandler} on a multi-threaded executor, without reordering events that
+ * belong together. Each event is assigned to one of a fixed number of partitions by the hash of its key. The events
+ * of a partition are handled one at a time, in the order they were received, while different partitions are handled
+ * in parallel. The handler must therefore be thread safe.
+ *
+ * onConnect and onError are delivered through the first partition, so they are only ordered with respect to the
+ * events of that partition. Exceptions thrown by the handler are passed to its own onError on the same thread. A
+ * message whose key can't be extracted is dropped, and the extractor's exception is passed to onError.
+ *
+ * Pooled messages are recycled when the handler has returned. A message id is only checkpointed once the handler has
+ * returned for that message and for every message received before it, whatever their partitions.
+ *
+ * In bounded mode, reading from the connection is paused when the number of messages waiting to be delivered
+ * reaches a high watermark, and resumed when it has fallen to a low watermark.
+ */
+public class PartitionedDispatcher implements EventDispatcher {
+    private final EventSourceHandler eventSourceHandler;
+    private final KeyExtractor keyExtractor;
+    // Each partition runs its events one at a time, in order, on the shared executor
+    private final SerialExecutor[] partitions;
+    private final Watermarks watermarks;
+    // Messages in the order they were received, until they and all before them have been delivered
+    private final Queue<Delivery> undelivered = new ArrayDeque<Delivery>();
+
+    private volatile EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private volatile CheckpointStore checkpointStore;
+
+    /**
+     * @param executor runs the partitions - it should have about as many threads as there are partitions
+     * @param eventSourceHandler receives events, on several threads at once
+     * @param partitionCount the number of partitions, i.e. the most events handled in parallel
+     * @param keyExtractor picks the key of each event
+     */
+    public PartitionedDispatcher(Executor executor, EventSourceHandler eventSourceHandler, int partitionCount, KeyExtractor keyExtractor) {
+        this(executor, eventSourceHandler, partitionCount, keyExtractor, 0, 0);
+    }
+
+    /**
+     * @param executor runs the partitions - it should have about as many threads as there are partitions
+     * @param eventSourceHandler receives events, on several threads at once
+     * @param partitionCount the number of partitions, i.e. the most events handled in parallel
+     * @param keyExtractor picks the key of each event
+     * @param highWatermark reading is paused when this many messages are waiting to be delivered. 0 means unbounded.
+     * @param lowWatermark reading is resumed when no more than this many messages are waiting to be delivered
+     */
+    public PartitionedDispatcher(Executor executor, EventSourceHandler eventSourceHandler, int partitionCount, KeyExtractor keyExtractor, int highWatermark, int lowWatermark) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be at least 1: " + partitionCount);
+        }
+        this.watermarks = new Watermarks(highWatermark, lowWatermark);
+        this.eventSourceHandler = eventSourceHandler;
+        this.keyExtractor = keyExtractor;
+        this.partitions = new SerialExecutor[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new SerialExecutor(executor);
+        }
+    }
+
+    @Override
+    public void setFlowControl(FlowControl flowControl) {
+        watermarks.setFlowControl(flowControl);
+    }
+
+    @Override
+    public void setMetrics(EventSourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * @return the number of messages received but not yet delivered to the handler
+     */
+    public int getPendingCount() {
+        return watermarks.getPendingCount();
+    }
+
+    @Override
+    public void onConnect() {
+        partitions[0].execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    eventSourceHandler.onConnect();
+                } catch (Exception e) {
+                    eventSourceHandler.onError(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(String event, MessageEvent message) {
+        int partition;
+        try {
+            partition = partition(keyExtractor.key(event, message));
+        } catch (Exception e) {
+            // Dropped before it is counted, so that it can't hold up reading or checkpoints
+            MessageEventPool.recycle(message);
+            onError(e);
+            return;
+        }
+        Delivery delivery = new Delivery(event, message);
+        if (checkpointStore != null) {
+            synchronized (undelivered) {
+                undelivered.add(delivery);
+            }
+        }
+        metrics.eventQueued(watermarks.queued());
+        partitions[partition].execute(delivery);
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+        partitions[0].execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    eventSourceHandler.onError(error);
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void readComplete() {
+    }
+
+    private int partition(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int hash = key.hashCode();
+        // Spread the high bits, as HashMap does, so that keys differing only there still get different partitions
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return (hash & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    private void checkpoint(Delivery delivery) {
+        CheckpointStore store = checkpointStore;
+        if (store == null) {
+            return;
+        }
+        synchronized (undelivered) {
+            delivery.done = true;
+            String lastEventId = null;
+            while (!undelivered.isEmpty() && undelivered.peek().done) {
+                Delivery head = undelivered.poll();
+                if (head.lastEventId != null) {
+                    lastEventId = head.lastEventId;
+                }
+            }
+            // Saved under the lock, so that a later id is never overwritten by an earlier one
+            if (lastEventId != null) {
+                store.save(lastEventId);
+            }
+        }
+    }
+
+    private void delivered(long start) {
+        int pendingCount = watermarks.delivered(1);
+        if (metrics != EventSourceMetrics.NONE) {
+            metrics.eventDelivered(pendingCount, System.nanoTime() - start);
+        }
+    }
+
+    private class Delivery implements Runnable {
+        private final String event;
+        private final MessageEvent message;
+        // Kept apart from the message, which may be recycled before the id is checkpointed
+        private final String lastEventId;
+        // Guarded by undelivered
+        private boolean done;
+
+        private Delivery(String event, MessageEvent message) {
+            this.event = event;
+            this.message = message;
+            this.lastEventId = message.getLastEventId();
+        }
+
+        @Override
+        public void run() {
+            long start = metrics == EventSourceMetrics.NONE ? 0 : System.nanoTime();
+            try {
+                eventSourceHandler.onMessage(event, message);
+            } catch (Exception e) {
+                eventSourceHandler.onError(e);
+            } finally {
+                checkpoint(this);
+                MessageEventPool.recycle(message);
+                delivered(start);
+            }
+        }
+    }
+}
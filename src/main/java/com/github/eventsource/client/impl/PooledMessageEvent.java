@@ -0,0 +1,79 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.MessageEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link MessageEvent} that is reused for many events. Its content is only valid until it is recycled, and the
+ * public fields are always null - the getters return the content.
+ */
+class PooledMessageEvent extends MessageEvent {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    final MessageEventPool pool;
+    private byte[] dataBytes = new byte[0];
+    private int dataLength;
+    private String decodedData;
+    private String lastEventId;
+    private String origin;
+
+    PooledMessageEvent(MessageEventPool pool) {
+        super((String) null);
+        this.pool = pool;
+    }
+
+    void set(byte[] bytes, int offset, int length, String lastEventId, String origin) {
+        if (dataBytes.length < length) {
+            dataBytes = new byte[Math.max(length, dataBytes.length * 2)];
+        }
+        System.arraycopy(bytes, offset, dataBytes, 0, length);
+        this.dataLength = length;
+        this.lastEventId = lastEventId;
+        this.origin = origin;
+    }
+
+    void clear() {
+        decodedData = null;
+        lastEventId = null;
+        origin = null;
+        if (dataBytes.length > MAX_RETAINED_BUFFER_SIZE) {
+            dataBytes = new byte[0];
+        }
+    }
+
+    @Override
+    public String getData() {
+        if (decodedData == null) {
+            decodedData = new String(dataBytes, 0, dataLength, UTF_8);
+        }
+        return decodedData;
+    }
+
+    /**
+     * @return a read-only view of the data, which is overwritten when the message is recycled
+     */
+    @Override
+    public ByteBuffer getDataBytes() {
+        return ByteBuffer.wrap(dataBytes, 0, dataLength).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    @Override
+    public String getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public MessageEvent copy() {
+        byte[] copy = new byte[dataLength];
+        System.arraycopy(dataBytes, 0, copy, 0, dataLength);
+        return new MessageEvent(copy, lastEventId, origin);
+    }
+}
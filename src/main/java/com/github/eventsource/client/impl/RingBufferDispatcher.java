@@ -0,0 +1,306 @@
+package com.github.eventsource.client.impl;
+
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.MessageEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands events over to an {@link EventSourceHandler} through a preallocated ring buffer, in the style of the
+ * <a href="http://lmax-exchange.github.com/disruptor/">Disruptor</a>. The slots are reused, so no task is allocated
+ * per event, and the hand-off is lock-free unless the {@link WaitStrategy#BLOCKING} strategy is used.
+ *
+ * There is a single producer - the connection's I/O thread - and a single consumer: a dedicated thread that calls
+ * the handler. Exceptions thrown by the handler are passed to its own onError on the consumer thread. Pooled
+ * messages are recycled, and message ids checkpointed, when the handler has returned.
+ *
+ * Reading from the connection is paused when the ring is three quarters full and resumed when it is down to a
+ * quarter. If a single network read still fills the ring, the I/O thread waits for the consumer.
+ */
+public class RingBufferDispatcher implements EventDispatcher {
+    public enum WaitStrategy {
+        /** Lowest latency. The consumer thread spins on a CPU core while waiting for events. */
+        BUSY_SPIN,
+        /** Spins for a while, then yields the CPU between checks. */
+        YIELDING,
+        /** Sleeps on a lock until events arrive. Cheapest on CPU, highest latency. */
+        BLOCKING
+    }
+
+    private static final int CONNECT = 0;
+    private static final int MESSAGE = 1;
+    private static final int ERROR = 2;
+    private static final int SPIN_TRIES = 100;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final EventSourceHandler eventSourceHandler;
+    private final WaitStrategy waitStrategy;
+    private final Slot[] slots;
+    private final int mask;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final Thread consumer;
+
+    // Sequences count the slots ever published and consumed
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private long next;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Object flowLock = new Object();
+    private FlowControl flowControl;
+    private volatile EventSourceMetrics metrics = EventSourceMetrics.NONE;
+    private volatile CheckpointStore checkpointStore;
+    private volatile boolean suspended;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the dispatcher and starts its consumer thread.
+     *
+     * @param eventSourceHandler receives events
+     * @param bufferSize number of slots, rounded up to a power of two
+     * @param waitStrategy how the consumer waits for events
+     */
+    public RingBufferDispatcher(EventSourceHandler eventSourceHandler, int bufferSize, WaitStrategy waitStrategy) {
+        if (bufferSize < 4) {
+            throw new IllegalArgumentException("bufferSize must be at least 4: " + bufferSize);
+        }
+        int capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        this.eventSourceHandler = eventSourceHandler;
+        this.waitStrategy = waitStrategy;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.highWatermark = capacity - capacity / 4;
+        this.lowWatermark = capacity / 4;
+        this.consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "eventsource-ring-" + THREAD_COUNT.incrementAndGet());
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void setFlowControl(FlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    @Override
+    public void setMetrics(EventSourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    @Override
+    public void onConnect() {
+        publish(CONNECT, null, null, null);
+        signal();
+    }
+
+    @Override
+    public void onMessage(String event, MessageEvent message) {
+        publish(MESSAGE, event, message, null);
+        metrics.eventQueued((int) (next - consumed.get()));
+        if (waitStrategy == WaitStrategy.BLOCKING && published.get() - consumed.get() == 1) {
+            signal();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        publish(ERROR, null, null, t);
+        signal();
+    }
+
+    @Override
+    public void readComplete() {
+        signal();
+    }
+
+    /**
+     * Stops the consumer thread once the events already in the ring have been delivered. Call this after closing
+     * the EventSource.
+     */
+    public void shutdown() {
+        running = false;
+        signalAlways();
+    }
+
+    private void publish(int type, String event, MessageEvent message, Throwable error) {
+        long sequence = next;
+        int tries = 0;
+        while (sequence - consumed.get() >= slots.length) {
+            signal();
+            tries = waitFor(tries);
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.type = type;
+        slot.event = event;
+        slot.message = message;
+        slot.error = error;
+        next = sequence + 1;
+        published.lazySet(next);
+        if (next - consumed.get() >= highWatermark) {
+            synchronized (flowLock) {
+                if (!suspended && flowControl != null && published.get() - consumed.get() >= highWatermark) {
+                    suspended = true;
+                    flowControl.setReadable(false);
+                }
+            }
+        }
+    }
+
+    private void consume() {
+        long sequence = consumed.get();
+        int tries = 0;
+        while (true) {
+            long available = published.get();
+            if (sequence == available) {
+                if (!running) {
+                    return;
+                }
+                tries = waitForPublished(sequence, tries);
+                continue;
+            }
+            tries = 0;
+            while (sequence < available) {
+                Slot slot = slots[(int) sequence & mask];
+                long start = metrics == EventSourceMetrics.NONE ? 0 : System.nanoTime();
+                deliver(slot);
+                if (slot.type == MESSAGE) {
+                    checkpoint(slot.message);
+                    MessageEventPool.recycle(slot.message);
+                    if (metrics != EventSourceMetrics.NONE) {
+                        metrics.eventDelivered((int) (published.get() - sequence - 1), System.nanoTime() - start);
+                    }
+                }
+                slot.event = null;
+                slot.message = null;
+                slot.error = null;
+                consumed.lazySet(++sequence);
+            }
+            if (suspended && published.get() - sequence <= lowWatermark) {
+                resumeIfBelowLowWatermark();
+            }
+        }
+    }
+
+    private void deliver(Slot slot) {
+        try {
+            switch (slot.type) {
+                case CONNECT:
+                    eventSourceHandler.onConnect();
+                    break;
+                case MESSAGE:
+                    eventSourceHandler.onMessage(slot.event, slot.message);
+                    break;
+                case ERROR:
+                    eventSourceHandler.onError(slot.error);
+                    break;
+            }
+        } catch (Throwable e) {
+            reportError(e);
+        }
+    }
+
+    private void checkpoint(MessageEvent message) {
+        CheckpointStore checkpointStore = this.checkpointStore;
+        if (checkpointStore != null && message.getLastEventId() != null) {
+            try {
+                checkpointStore.save(message.getLastEventId());
+            } catch (Throwable e) {
+                // The consumer is the only thread taking events off the ring, so it must outlive a failing store
+                reportError(e);
+            }
+        }
+    }
+
+    private void reportError(Throwable e) {
+        try {
+            eventSourceHandler.onError(e);
+        } catch (Throwable ignore) {
+            e.printStackTrace();
+        }
+    }
+
+    private void resumeIfBelowLowWatermark() {
+        synchronized (flowLock) {
+            if (suspended && flowControl != null && published.get() - consumed.get() <= lowWatermark) {
+                suspended = false;
+                flowControl.setReadable(true);
+            }
+        }
+    }
+
+    private int waitForPublished(long sequence, int tries) {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            return waitFor(tries);
+        }
+        lock.lock();
+        try {
+            while (published.get() == sequence && running) {
+                notEmpty.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+        return 0;
+    }
+
+    private int waitFor(int tries) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELDING:
+                if (tries >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+                break;
+            case BLOCKING:
+                LockSupport.parkNanos(1000);
+                break;
+        }
+        return tries + 1;
+    }
+
+    private void signal() {
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            signalAlways();
+        }
+    }
+
+    private void signalAlways() {
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Slot {
+        int type;
+        String event;
+        MessageEvent message;
+        Throwable error;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.eventsource.client.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs its tasks one at a time, in the order they were added, on a shared executor - like a single thread executor
+ * without a thread of its own, so that any number of them can share one thread pool. A task that throws ends its
+ * run, and the exception is left to the executor; the tasks after it are run in a new one.
+ */
+public class SerialExecutor implements Executor {
+    // Gives the executor's threads back after this many tasks, so that busy serial executors can't starve others
+    private static final int MAX_TASKS_PER_RUN = 64;
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < MAX_TASKS_PER_RUN && !closed; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    task.run();
+                }
+            } finally {
+                // Also when a task has thrown, which goes on to the executor, so that the remaining tasks still run
+                scheduled.set(false);
+                // A task added after the last poll couldn't schedule the drain, because it was still running
+                if (!tasks.isEmpty() && !closed) {
+                    schedule();
+                }
+            }
+        }
+    };
+    private volatile boolean closed;
+
+    /**
+     * @param executor runs the tasks
+     */
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (closed) {
+            return;
+        }
+        tasks.add(task);
+        schedule();
+    }
+
+    /**
+     * Drops the tasks that haven't started yet. Tasks added afterwards are never run.
+     */
+    public void close() {
+        closed = true;
+        tasks.clear();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(drain);
+        }
+    }
+}
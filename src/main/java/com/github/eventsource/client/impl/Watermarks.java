@@ -0,0 +1,73 @@
+package com.github.eventsource.client.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the messages waiting to be delivered, and pauses reading from the connection while there are too many:
+ * reading is paused when the count reaches the high watermark, and resumed when it has fallen to the low watermark.
+ */
+class Watermarks {
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private FlowControl flowControl;
+    // Guarded by pending
+    private boolean suspended;
+
+    /**
+     * @param highWatermark reading is paused when this many messages are waiting to be delivered. 0 means unbounded.
+     * @param lowWatermark reading is resumed when no more than this many messages are waiting to be delivered
+     */
+    Watermarks(int highWatermark, int lowWatermark) {
+        if (highWatermark < 0 || lowWatermark < 0 || (highWatermark > 0 && lowWatermark >= highWatermark)) {
+            throw new IllegalArgumentException("Expected 0 <= lowWatermark < highWatermark, got " + lowWatermark + " and " + highWatermark);
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    void setFlowControl(FlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    /**
+     * @return the number of messages waiting to be delivered
+     */
+    int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * @return the number of messages waiting to be delivered, including the one just queued
+     */
+    int queued() {
+        int pendingCount = pending.incrementAndGet();
+        if (highWatermark > 0 && pendingCount >= highWatermark) {
+            synchronized (pending) {
+                if (!suspended && pending.get() >= highWatermark) {
+                    suspended = true;
+                    flowControl.setReadable(false);
+                }
+            }
+        }
+        return pendingCount;
+    }
+
+    /**
+     * @param count the number of messages just delivered
+     * @return the number of messages still waiting to be delivered
+     */
+    int delivered(int count) {
+        int pendingCount = pending.addAndGet(-count);
+        if (highWatermark > 0 && pendingCount <= lowWatermark) {
+            synchronized (pending) {
+                if (suspended && pending.get() <= lowWatermark) {
+                    suspended = false;
+                    flowControl.setReadable(true);
+                }
+            }
+        }
+        return pendingCount;
+    }
+}
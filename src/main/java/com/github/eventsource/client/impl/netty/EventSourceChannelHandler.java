@@ -1,53 +1,57 @@
 package com.github.eventsource.client.impl.netty;
 
+import com.github.eventsource.client.CheckpointStore;
+import com.github.eventsource.client.ConnectionManager;
+import com.github.eventsource.client.EventFilter;
 import com.github.eventsource.client.EventSourceException;
-import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.EventSourceMetrics;
+import com.github.eventsource.client.ReconnectionPolicy;
 import com.github.eventsource.client.impl.ConnectionHandler;
-import com.github.eventsource.client.impl.EventStreamParser;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.EventStreamSession;
+import com.github.eventsource.client.impl.FlowControl;
+import com.github.eventsource.client.impl.MessageEventPool;
+import com.github.eventsource.client.journal.JournalWriter;
 import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
-import org.jboss.netty.handler.codec.http.HttpHeaders.Names;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpVersion;
-import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.handler.ssl.SslHandler;
+import org.jboss.netty.handler.timeout.ReadTimeoutException;
 import org.jboss.netty.util.Timeout;
 import org.jboss.netty.util.Timer;
 import org.jboss.netty.util.TimerTask;
 
-import java.net.ConnectException;
 import java.net.URI;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-public class EventSourceChannelHandler extends SimpleChannelUpstreamHandler implements ConnectionHandler {
-    private static final Pattern STATUS_PATTERN = Pattern.compile("HTTP/1.1 (\\d+) (.*)");
-    private static final Pattern CONTENT_TYPE_PATTERN = Pattern.compile("Content-Type: text/event-stream");
-
-    private final EventSourceHandler eventSourceHandler;
+/**
+ * The Netty 3 transport: connects with a {@link ClientBootstrap}, and leaves the rest to an {@link EventStreamSession}.
+ */
+public class EventSourceChannelHandler extends SimpleChannelUpstreamHandler implements ConnectionHandler, FlowControl {
     private final ClientBootstrap bootstrap;
+    private final ConnectionManager connectionManager;
     private final URI uri;
-    private final EventStreamParser messageDispatcher;
-
-    private final Timer timer = new HashedWheelTimer();
-    private Channel channel;
-    private boolean reconnectOnClose = true;
-    private long reconnectionTimeMillis;
-    private String lastEventId;
-    private boolean eventStreamOk;
-    private boolean headerDone;
-    private Integer status;
+    private final EventStreamSession session;
+
+    private final Timer timer;
+    private byte[] copyBuffer = new byte[0];
+    private volatile Channel channel;
+    private volatile boolean readable = true;
+    private volatile boolean reconnectOnClose = true;
     private AtomicBoolean reconnecting = new AtomicBoolean(false);
 
-    public EventSourceChannelHandler(EventSourceHandler eventSourceHandler, long reconnectionTimeMillis, ClientBootstrap bootstrap, URI uri) {
-        this.eventSourceHandler = eventSourceHandler;
-        this.reconnectionTimeMillis = reconnectionTimeMillis;
+    public EventSourceChannelHandler(EventDispatcher eventSourceHandler, long reconnectionTimeMillis, ClientBootstrap bootstrap, URI uri, Timer timer, ConnectionManager connectionManager) {
         this.bootstrap = bootstrap;
         this.uri = uri;
-        this.messageDispatcher = new EventStreamParser(uri.toString(), eventSourceHandler, this);
+        this.timer = timer;
+        this.connectionManager = connectionManager;
+        this.session = new EventStreamSession(uri, eventSourceHandler, reconnectionTimeMillis);
     }
 
     @Override
@@ -57,16 +61,38 @@ public class EventSourceChannelHandler extends SimpleChannelUpstreamHandler impl
 
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri.toString());
-        request.addHeader(Names.ACCEPT, "text/event-stream");
-        request.addHeader(Names.HOST, uri.getHost());
-        request.addHeader(Names.ORIGIN, "http://" + uri.getHost());
-        request.addHeader(Names.CACHE_CONTROL, "no-cache");
-        if (lastEventId != null) {
-            request.addHeader("Last-Event-ID", lastEventId);
+        if (!reconnectOnClose) {
+            // Closed while the connect was waiting for a free connection
+            e.getChannel().close();
+            return;
         }
-        e.getChannel().write(request);
+        session.connected();
         channel = e.getChannel();
+        if (!readable) {
+            channel.setReadable(false);
+        }
+        SslHandler sslHandler = (SslHandler) ctx.getPipeline().get("ssl");
+        if (sslHandler == null) {
+            channel.write(request());
+        } else {
+            sslHandler.handshake().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    // A failed handshake goes to exceptionCaught, which closes the channel
+                    if (future.isSuccess()) {
+                        future.getChannel().write(request());
+                    }
+                }
+            });
+        }
+    }
+
+    private HttpRequest request() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri.toString());
+        for (Map.Entry<String, String> header : session.requestHeaders().entrySet()) {
+            request.addHeader(header.getKey(), header.getValue());
+        }
+        return request;
     }
 
     @Override
@@ -76,6 +102,7 @@ public class EventSourceChannelHandler extends SimpleChannelUpstreamHandler impl
 
     @Override
     public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        session.closed();
         if (reconnectOnClose) {
             reconnect();
         }
@@ -83,60 +110,92 @@ public class EventSourceChannelHandler extends SimpleChannelUpstreamHandler impl
 
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-        String line = (String) e.getMessage();
-        if (status == null) {
-            Matcher statusMatcher = STATUS_PATTERN.matcher(line);
-            if (statusMatcher.matches()) {
-                status = Integer.parseInt(statusMatcher.group(1));
-                if (status != 200) {
-                    eventSourceHandler.onError(new EventSourceException("Bad status from " + uri + ": " + status));
-                    reconnect();
-                }
-                return;
-            } else {
-                eventSourceHandler.onError(new EventSourceException("Not HTTP? " + uri + ": " + line));
-                reconnect();
+        ChannelBuffer buffer = (ChannelBuffer) e.getMessage();
+        int length = buffer.readableBytes();
+        boolean open;
+        if (buffer.hasArray()) {
+            open = session.bytes(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
+        } else {
+            if (copyBuffer.length < length) {
+                copyBuffer = new byte[length];
             }
+            buffer.getBytes(buffer.readerIndex(), copyBuffer, 0, length);
+            open = session.bytes(copyBuffer, 0, length);
         }
-        if (!headerDone) {
-            if (CONTENT_TYPE_PATTERN.matcher(line).matches()) {
-                eventStreamOk = true;
-            }
-            if (line.isEmpty()) {
-                headerDone = true;
-                if (eventStreamOk) {
-                    eventSourceHandler.onConnect();
-                } else {
-                    eventSourceHandler.onError(new EventSourceException("Not event stream: " + uri + " (expected Content-Type: text/event-stream"));
-                    reconnect();
-                }
-            }
-        } else {
-            messageDispatcher.line(line);
+        buffer.skipBytes(length);
+        if (!open) {
+            // The server ended the stream, but kept the connection open
+            e.getChannel().close();
         }
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         Throwable error = e.getCause();
-        if(error instanceof ConnectException) {
-            error = new EventSourceException("Failed to connect to " + uri, error);
+        if (error instanceof ReadTimeoutException) {
+            if (!readable) {
+                // Nothing was read because reading is paused
+                return;
+            }
+            error = new EventSourceException("Nothing read from " + uri + " for too long - reconnecting", error);
         }
-        eventSourceHandler.onError(error);
+        session.failed(error);
         ctx.getChannel().close();
     }
 
     public void setReconnectionTimeMillis(long reconnectionTimeMillis) {
-        this.reconnectionTimeMillis = reconnectionTimeMillis;
+        session.setReconnectionTimeMillis(reconnectionTimeMillis);
     }
 
     @Override
     public void setLastEventId(String lastEventId) {
-        this.lastEventId = lastEventId;
+        session.setLastEventId(lastEventId);
+    }
+
+    @Override
+    public void setReadable(boolean readable) {
+        this.readable = readable;
+        Channel channel = this.channel;
+        if (channel != null) {
+            channel.setReadable(readable);
+        }
+    }
+
+    public void setReconnectionPolicy(ReconnectionPolicy reconnectionPolicy) {
+        session.setReconnectionPolicy(reconnectionPolicy);
+    }
+
+    public void setMetrics(EventSourceMetrics metrics) {
+        session.setMetrics(metrics);
+    }
+
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        session.setCheckpointStore(checkpointStore);
+    }
+
+    public void setRawData(boolean rawData) {
+        session.setRawData(rawData);
+    }
+
+    public void setMessagePool(MessageEventPool messagePool) {
+        session.setMessagePool(messagePool);
+    }
+
+    public void setJournal(JournalWriter journal) {
+        session.setJournal(journal);
+    }
+
+    public void setEventFilter(EventFilter eventFilter) {
+        session.setEventFilter(eventFilter);
+    }
+
+    public ChannelFuture connect() {
+        return connectionManager.connect(bootstrap, uri);
     }
 
     public EventSourceChannelHandler close() {
         reconnectOnClose = false;
+        connectionManager.cancel(bootstrap, uri);
         if (channel != null) {
             channel.close();
         }
@@ -153,13 +212,17 @@ public class EventSourceChannelHandler extends SimpleChannelUpstreamHandler impl
     private void reconnect() {
         if(!reconnecting.get()) {
             reconnecting.set(true);
+            long delayMillis = session.reconnectDelayMillis();
             timer.newTimeout(new TimerTask() {
                 @Override
                 public void run(Timeout timeout) throws Exception {
                     reconnecting.set(false);
-                    bootstrap.connect().await();
+                    // Unless closed while waiting
+                    if (reconnectOnClose) {
+                        connect();
+                    }
                 }
-            }, reconnectionTimeMillis, TimeUnit.MILLISECONDS);
+            }, delayMillis, TimeUnit.MILLISECONDS);
         }
     }
-}
\ No newline at end of file
+}
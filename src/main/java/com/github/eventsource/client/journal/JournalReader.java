@@ -0,0 +1,134 @@
+package com.github.eventsource.client.journal;
+
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Replays a journal written by {@link JournalWriter} through an {@link EventSourceHandler}, either as fast as the
+ * handler takes the events or with their original timing. The events are read from memory-mapped segments, and
+ * the messages keep their data as bytes, so a replay at full speed makes a deterministic load generator.
+ */
+public class JournalReader {
+    private final File directory;
+
+    public JournalReader(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Replays all events in the journal, on the calling thread. Exceptions thrown by the handler's onMessage are
+     * passed to its onError.
+     *
+     * @param handler receives the events
+     * @param speed 0 to replay as fast as possible, 1 to keep the time between events as it was when they were
+     * received, 2 to replay twice as fast and so on
+     * @return the number of events replayed
+     * @throws IOException if the journal can't be read
+     * @throws InterruptedException if the thread was interrupted while waiting for the next event
+     */
+    public long replay(EventSourceHandler handler, double speed) throws IOException, InterruptedException {
+        long count = 0;
+        long firstTimestamp = 0;
+        long startNanos = System.nanoTime();
+        for (File file : segments(directory)) {
+            MappedByteBuffer segment = map(file);
+            String origin = readHeader(segment);
+            if (origin == null) {
+                continue;
+            }
+            while (segment.remaining() >= 4) {
+                int recordLength = segment.getInt();
+                if (recordLength == 0) {
+                    break;
+                }
+                long timestamp = segment.getLong();
+                String event = new String(bytes(segment, segment.getInt()), JournalWriter.UTF_8);
+                int idLength = segment.getInt();
+                String lastEventId = idLength == -1 ? null : new String(bytes(segment, idLength), JournalWriter.UTF_8);
+                byte[] data = bytes(segment, segment.getInt());
+
+                if (speed > 0) {
+                    if (count == 0) {
+                        firstTimestamp = timestamp;
+                    }
+                    long dueNanos = startNanos + (long) ((timestamp - firstTimestamp) * 1000000 / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+                    }
+                }
+                try {
+                    handler.onMessage(event, new MessageEvent(data, lastEventId, origin));
+                } catch (Exception e) {
+                    handler.onError(e);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static File[] segments(File directory) {
+        File[] segments = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(JournalWriter.SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        // The names are zero padded indexes
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * @return the origin of the segment's events, or null if the segment has no header
+     */
+    static String readHeader(MappedByteBuffer segment) {
+        if (segment.remaining() < 8 || segment.getInt() != JournalWriter.MAGIC) {
+            return null;
+        }
+        return new String(bytes(segment, segment.getInt()), JournalWriter.UTF_8);
+    }
+
+    /**
+     * @return true if a record was skipped, false if the segment's end was reached - the segment is then positioned
+     * where the next record goes
+     */
+    static boolean skipRecord(MappedByteBuffer segment) {
+        if (segment.remaining() < 4) {
+            return false;
+        }
+        int recordLength = segment.getInt(segment.position());
+        if (recordLength == 0) {
+            return false;
+        }
+        segment.position(segment.position() + 4 + recordLength);
+        return true;
+    }
+
+    private static byte[] bytes(MappedByteBuffer segment, int length) {
+        byte[] bytes = new byte[length];
+        segment.get(bytes);
+        return bytes;
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+    }
+}
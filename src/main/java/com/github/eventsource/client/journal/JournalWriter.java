@@ -0,0 +1,171 @@
+package com.github.eventsource.client.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Appends events to a journal: a directory of memory-mapped segment files. Each segment starts with the origin of
+ * its events and holds records of the receive time, event name, last event id and data of one event.
+ *
+ * Appending copies the event into the mapped segment, so the operating system writes it to disk in the background;
+ * {@link #flush()} forces it to disk. A writer must only be used by one thread at a time, and a journal written by
+ * one writer at a time. Opening a writer on an existing journal continues after its last event.
+ *
+ * A writer journals a single EventSource. Besides running on another I/O thread, a second EventSource with another
+ * origin would start a new segment for every event that follows one of the first's, so {@link #attach(Object)}
+ * refuses it. Give each EventSource a writer of its own, on a directory of its own.
+ *
+ * @see JournalReader
+ */
+public class JournalWriter {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final int MAGIC = 0x45534a31;
+    static final String SUFFIX = ".journal";
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final int segmentSize;
+
+    private MappedByteBuffer segment;
+    private long segmentIndex = -1;
+    private String segmentOrigin;
+    // Guarded by this
+    private Object owner;
+
+    /**
+     * @param directory where the segments are kept. It is created if it doesn't exist.
+     * @param segmentSize the size of each segment file. Events larger than a segment get a segment of their own.
+     * @throws IOException if the journal can't be opened
+     */
+    public JournalWriter(File directory, int segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        File[] segments = JournalReader.segments(directory);
+        if (segments.length > 0) {
+            File last = segments[segments.length - 1];
+            segmentIndex = index(last);
+            segment = map(last, last.length());
+            segmentOrigin = JournalReader.readHeader(segment);
+            if (segmentOrigin == null) {
+                segment = null;
+            } else {
+                while (JournalReader.skipRecord(segment)) {
+                    // Continue after the last record
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by an EventSource when it is given the writer.
+     *
+     * @param owner the EventSource's parser
+     * @throws IllegalStateException if the writer already journals another EventSource
+     */
+    public synchronized void attach(Object owner) {
+        if (this.owner != null && this.owner != owner) {
+            throw new IllegalStateException("The journal in " + directory + " is already used by another EventSource - give each EventSource a JournalWriter of its own");
+        }
+        this.owner = owner;
+    }
+
+    /**
+     * Called by an EventSource when it stops using the writer, so that another EventSource can use it.
+     *
+     * @param owner the EventSource's parser
+     */
+    public synchronized void detach(Object owner) {
+        if (this.owner == owner) {
+            this.owner = null;
+        }
+    }
+
+    /**
+     * Appends an event.
+     *
+     * @param origin the origin of the event
+     * @param timestampMillis when the event was received
+     * @param event the event name
+     * @param lastEventId the last event id, or null
+     * @param data the UTF-8 encoded data
+     * @param offset where the data starts
+     * @param length the length of the data
+     * @throws IOException if a new segment can't be created
+     */
+    public void append(String origin, long timestampMillis, String event, String lastEventId, byte[] data, int offset, int length) throws IOException {
+        byte[] eventBytes = event.getBytes(UTF_8);
+        byte[] idBytes = lastEventId == null ? null : lastEventId.getBytes(UTF_8);
+        int recordLength = 8 + 4 + eventBytes.length + 4 + (idBytes == null ? 0 : idBytes.length) + 4 + length;
+        // Leave room for the end marker after the record
+        if (segment == null || !origin.equals(segmentOrigin) || segment.remaining() < 4 + recordLength + 4) {
+            newSegment(origin, recordLength);
+        }
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.putLong(timestampMillis);
+        segment.putInt(eventBytes.length);
+        segment.put(eventBytes);
+        if (idBytes == null) {
+            segment.putInt(-1);
+        } else {
+            segment.putInt(idBytes.length);
+            segment.put(idBytes);
+        }
+        segment.putInt(length);
+        segment.put(data, offset, length);
+        // The length goes in last, so that readers never see a partial record
+        segment.putInt(start, recordLength);
+    }
+
+    /**
+     * Forces the events appended so far to disk.
+     */
+    public void flush() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Flushes the journal. The writer must not be used afterwards.
+     */
+    public void close() {
+        flush();
+        segment = null;
+    }
+
+    private void newSegment(String origin, int recordLength) throws IOException {
+        flush();
+        byte[] originBytes = origin.getBytes(UTF_8);
+        int size = Math.max(segmentSize, 8 + originBytes.length + 4 + recordLength + 4);
+        segmentIndex++;
+        segment = map(new File(directory, String.format("%020d%s", segmentIndex, SUFFIX)), size);
+        segment.putInt(MAGIC);
+        segment.putInt(originBytes.length);
+        segment.put(originBytes);
+        segmentOrigin = origin;
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // The mapping stays valid after the file is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static long index(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.AsyncEventSourceHandler;
+import com.github.eventsource.client.impl.ConnectionHandler;
+import com.github.eventsource.client.impl.EventStreamParser;
+import com.github.eventsource.client.impl.FlowControl;
+import com.github.eventsource.client.impl.MessageEventPool;
+import com.github.eventsource.client.stubs.StubHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class AsyncEventSourceHandlerTest {
+    private List<Runnable> tasks;
+    private Executor executor;
+
+    @Before
+    public void setup() {
+        tasks = new ArrayList<Runnable>();
+        executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                tasks.add(task);
+            }
+        };
+    }
+
+    @Test
+    public void deliversMessagesFromOneReadInOneTask() throws Exception {
+        StubHandler handler = new StubHandler();
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, handler, 100, 0, null);
+        async.onMessage("message", new MessageEvent("a"));
+        async.onMessage("message", new MessageEvent("b"));
+        assertEquals(0, tasks.size());
+
+        async.readComplete();
+        runTasks();
+
+        assertEquals(asList(new MessageEvent("a"), new MessageEvent("b")), handler.getMessageEvents());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsTimerToLinger() throws Exception {
+        new AsyncEventSourceHandler(executor, new StubHandler(), 100, 10, null);
+    }
+
+    @Test
+    public void deliversFullBatchBeforeEndOfRead() throws Exception {
+        StubHandler handler = new StubHandler();
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, handler, 2, 0, null);
+        async.onMessage("message", new MessageEvent("a"));
+        async.onMessage("message", new MessageEvent("b"));
+        async.onMessage("message", new MessageEvent("c"));
+        runTasks();
+
+        assertEquals(asList(new MessageEvent("a"), new MessageEvent("b")), handler.getMessageEvents());
+    }
+
+    @Test
+    public void batchHandlerReceivesWholeBatch() throws Exception {
+        BatchEventSourceHandler handler = mock(BatchEventSourceHandler.class);
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, handler, 100, 0, null);
+        async.onMessage("a", new MessageEvent("1"));
+        async.onMessage("b", new MessageEvent("2"));
+        async.readComplete();
+        runTasks();
+
+        verify(handler).onMessages(eq(asList("a", "b")), eq(asList(new MessageEvent("1"), new MessageEvent("2"))));
+    }
+
+    @Test
+    public void failingMessageDoesntStopTheRestOfTheBatch() throws Exception {
+        StubHandler handler = new StubHandler() {
+            @Override
+            public void onMessage(String event, MessageEvent message) throws Exception {
+                if (message.data.equals("a")) {
+                    throw new RuntimeException("a");
+                }
+                super.onMessage(event, message);
+            }
+        };
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, handler, 100, 0, null);
+        async.onMessage("message", new MessageEvent("a"));
+        async.onMessage("message", new MessageEvent("b"));
+        async.readComplete();
+        runTasks();
+
+        assertEquals(asList(new MessageEvent("b")), handler.getMessageEvents());
+        assertEquals(1, handler.getErrors().size());
+    }
+
+    @Test
+    public void pausesReadingAtHighWatermarkAndResumesAtLowWatermark() throws Exception {
+        final List<Boolean> readable = new ArrayList<Boolean>();
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, new StubHandler(), 1, 0, null, 3, 1);
+        async.setFlowControl(new FlowControl() {
+            @Override
+            public void setReadable(boolean r) {
+                readable.add(r);
+            }
+        });
+        async.onMessage("message", new MessageEvent("a"));
+        async.onMessage("message", new MessageEvent("b"));
+        assertEquals(new ArrayList<Boolean>(), readable);
+        async.onMessage("message", new MessageEvent("c"));
+        async.onMessage("message", new MessageEvent("d"));
+        assertEquals(asList(false), readable);
+
+        tasks.remove(0).run();
+        tasks.remove(0).run();
+        assertEquals(asList(false), readable);
+        tasks.remove(0).run();
+        assertEquals(asList(false, true), readable);
+        assertEquals(1, async.getPendingCount());
+    }
+
+    @Test
+    public void recyclesPooledMessagesAfterDelivery() throws Exception {
+        final List<MessageEvent> received = new ArrayList<MessageEvent>();
+        final List<MessageEvent> copies = new ArrayList<MessageEvent>();
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, new StubHandler() {
+            @Override
+            public void onMessage(String event, MessageEvent message) throws Exception {
+                received.add(message);
+                copies.add(message.copy());
+            }
+        });
+        MessageEventPool pool = new MessageEventPool(4);
+        EventStreamParser parser = new EventStreamParser("http://host.com/", async, mock(ConnectionHandler.class));
+        parser.setMessagePool(pool);
+
+        parser.lines("data: a\nid: 1\n\n");
+        runTasks();
+        assertEquals(1, pool.size());
+        parser.lines("data: b\n\n");
+        runTasks();
+
+        assertSame(received.get(0), received.get(1));
+        assertEquals(asList(new MessageEvent("a", "1", "http://host.com/"), new MessageEvent("b", "1", "http://host.com/")), copies);
+    }
+
+    @Test
+    public void checkpointsMessageIdAfterDelivery() throws Exception {
+        CheckpointStore checkpointStore = mock(CheckpointStore.class);
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(executor, new StubHandler());
+        async.setCheckpointStore(checkpointStore);
+        async.onMessage("message", new MessageEvent("a", "7", null));
+        verify(checkpointStore, never()).save("7");
+
+        runTasks();
+        verify(checkpointStore).save("7");
+    }
+
+    private void runTasks() {
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).run();
+        }
+        tasks.clear();
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.BlockingDispatcher;
+import com.github.eventsource.client.impl.FlowControl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class BlockingDispatcherTest {
+    @Test
+    public void takesEventsInOrderUntilClosed() throws Exception {
+        BlockingDispatcher dispatcher = new BlockingDispatcher(10);
+        dispatcher.onMessage("a", new MessageEvent("1"));
+        dispatcher.onMessage("b", new MessageEvent("2"));
+        dispatcher.close();
+
+        List<String> taken = new ArrayList<String>();
+        for (BlockingDispatcher.Event event : dispatcher) {
+            taken.add(event.name + "=" + event.message.data);
+        }
+
+        assertEquals(asList("a=1", "b=2"), taken);
+    }
+
+    @Test
+    public void iterationCarriesOnThroughErrors() throws Exception {
+        BlockingDispatcher dispatcher = new BlockingDispatcher(10);
+        dispatcher.onMessage("a", new MessageEvent("1"));
+        dispatcher.onError(new RuntimeException("lost"));
+        dispatcher.onMessage("b", new MessageEvent("2"));
+        dispatcher.close();
+
+        List<String> taken = new ArrayList<String>();
+        for (BlockingDispatcher.Event event : dispatcher) {
+            taken.add(event.name + "=" + event.message.data);
+        }
+
+        assertEquals(asList("a=1", "b=2"), taken);
+    }
+
+    @Test
+    public void throwsErrorsInOrderWithEvents() throws Exception {
+        BlockingDispatcher dispatcher = new BlockingDispatcher(10);
+        dispatcher.onError(new RuntimeException("oops"));
+        dispatcher.onMessage("a", new MessageEvent("1"));
+
+        try {
+            dispatcher.take();
+            throw new AssertionError("Expected an EventSourceException");
+        } catch (EventSourceException e) {
+            assertEquals("oops", e.getCause().getMessage());
+        }
+        assertEquals("1", dispatcher.take().message.data);
+    }
+
+    @Test
+    public void reportsConnectsInOrderWithEventsOnlyWhenAsked() throws Exception {
+        BlockingDispatcher silent = new BlockingDispatcher(10);
+        silent.onConnect();
+        silent.onMessage("a", new MessageEvent("1"));
+        assertEquals("1", silent.take().message.data);
+
+        BlockingDispatcher reporting = new BlockingDispatcher(10, true);
+        reporting.onConnect();
+        reporting.onMessage("a", new MessageEvent("1"));
+        assertEquals(BlockingDispatcher.CONNECTED, reporting.take());
+        assertEquals(1, reporting.getPendingCount());
+        assertEquals("1", reporting.take().message.data);
+    }
+
+    @Test
+    public void returnsNullWhenNothingArrivesInTime() throws Exception {
+        assertEquals(null, new BlockingDispatcher(10).poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void pausesReadingAtCapacityAndCheckpointsTakenMessages() throws Exception {
+        final List<Boolean> readable = new ArrayList<Boolean>();
+        final List<String> saved = new ArrayList<String>();
+        BlockingDispatcher dispatcher = new BlockingDispatcher(4);
+        dispatcher.setFlowControl(new FlowControl() {
+            @Override
+            public void setReadable(boolean value) {
+                readable.add(value);
+            }
+        });
+        dispatcher.setCheckpointStore(new CheckpointStore() {
+            @Override
+            public String load() {
+                return null;
+            }
+
+            @Override
+            public void save(String lastEventId) {
+                saved.add(lastEventId);
+            }
+        });
+        for (int i = 1; i <= 4; i++) {
+            dispatcher.onMessage("message", new MessageEvent("data", String.valueOf(i), "origin"));
+        }
+        assertEquals(asList(false), readable);
+
+        dispatcher.take();
+        assertEquals(0, saved.size());
+        dispatcher.take();
+        assertEquals(asList("1"), saved);
+        assertEquals(asList(false, true), readable);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.eventsource.client;
+
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionManagerTest {
+    private static final URI URI = java.net.URI.create("http://localhost:59504/es");
+
+    private List<Runnable> lookups;
+    private List<ChannelFuture> connects;
+    private List<SocketAddress> addresses;
+    private ClientBootstrap bootstrap;
+
+    @Before
+    public void setup() {
+        lookups = new ArrayList<Runnable>();
+        connects = new ArrayList<ChannelFuture>();
+        addresses = new ArrayList<SocketAddress>();
+        bootstrap = new ClientBootstrap() {
+            @Override
+            public ChannelFuture connect(SocketAddress address) {
+                addresses.add(address);
+                ChannelFuture future = new DefaultChannelFuture(null, false);
+                connects.add(future);
+                return future;
+            }
+        };
+    }
+
+    @Test
+    public void looksUpAddressOnResolverAndReusesIt() throws Exception {
+        ConnectionManager connectionManager = new ConnectionManager(ConnectionManager.UNLIMITED, 60000, new Executor() {
+            @Override
+            public void execute(Runnable lookup) {
+                lookups.add(lookup);
+            }
+        });
+        ChannelFuture first = connectionManager.connect(bootstrap, URI);
+        assertTrue(addresses.isEmpty());
+
+        lookups.remove(0).run();
+        assertEquals(1, addresses.size());
+        assertFalse(((InetSocketAddress) addresses.get(0)).isUnresolved());
+        connects.get(0).setFailure(new Exception("refused"));
+        assertTrue(first.isDone());
+        assertFalse(first.isSuccess());
+
+        connectionManager.connect(bootstrap, URI);
+        assertTrue(lookups.isEmpty());
+        assertSame(addresses.get(0), addresses.get(1));
+    }
+
+    @Test
+    public void dropsQueuedConnectsOfCancelledBootstrap() throws Exception {
+        ConnectionManager connectionManager = new ConnectionManager(1, 60000, new Executor() {
+            @Override
+            public void execute(Runnable lookup) {
+                lookup.run();
+            }
+        });
+        connectionManager.connect(bootstrap, URI);
+        ClientBootstrap closed = new ClientBootstrap();
+        ChannelFuture queued = connectionManager.connect(closed, URI);
+        assertEquals(1, connectionManager.getPendingCount(URI));
+
+        connectionManager.cancel(closed, URI);
+        assertTrue(queued.isCancelled());
+        assertEquals(0, connectionManager.getPendingCount(URI));
+
+        // The free connection isn't handed to the closed bootstrap
+        connects.get(0).setFailure(new Exception("refused"));
+        assertEquals(1, addresses.size());
+        assertEquals(Integer.valueOf(0), connectionManager.getConnectionCounts().get("http://localhost:59504"));
+    }
+
+    @Test
+    public void failsConnectsThatNeedALookupAfterShutdown() throws Exception {
+        ConnectionManager connectionManager = new ConnectionManager(ConnectionManager.UNLIMITED, 60000);
+        connectionManager.shutdown();
+
+        ChannelFuture future = connectionManager.connect(bootstrap, URI);
+
+        assertTrue(future.isDone());
+        assertFalse(future.isSuccess());
+        assertEquals(Integer.valueOf(0), connectionManager.getConnectionCounts().get("http://localhost:59504"));
+    }
+
+    @Test
+    public void looksUpExpiredAddressAgain() throws Exception {
+        ConnectionManager connectionManager = new ConnectionManager(ConnectionManager.UNLIMITED, -1, new Executor() {
+            @Override
+            public void execute(Runnable lookup) {
+                lookups.add(lookup);
+            }
+        });
+        connectionManager.connect(bootstrap, URI);
+        connectionManager.connect(bootstrap, URI);
+
+        assertEquals(2, lookups.size());
+        assertTrue(addresses.isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.stubs.StubHandler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class EventRouterTest {
+    private static final String ORIGIN = "http://host.com:99/foo";
+
+    @Test
+    public void routesEventsByName() throws Exception {
+        StubHandler trades = new StubHandler();
+        StubHandler quotes = new StubHandler();
+        EventRouter router = new EventRouter()
+                .addEventListener("trade", trades)
+                .addEventListener("quote", quotes);
+
+        router.onMessage("trade", new MessageEvent("t1", null, ORIGIN));
+        router.onMessage("quote", new MessageEvent("q1", null, ORIGIN));
+        router.onMessage("other", new MessageEvent("o1", null, ORIGIN));
+
+        assertEquals(asList(new MessageEvent("t1", null, ORIGIN)), trades.getMessageEvents());
+        assertEquals(asList(new MessageEvent("q1", null, ORIGIN)), quotes.getMessageEvents());
+    }
+
+    @Test
+    public void acceptsOnlyEventsWithListeners() throws Exception {
+        StubHandler handler = new StubHandler();
+        EventRouter router = new EventRouter().addEventListener("trade", handler);
+
+        assertEquals(true, router.accepts("trade"));
+        assertEquals(false, router.accepts("message"));
+
+        router.removeEventListener("trade", handler);
+        assertEquals(false, router.accepts("trade"));
+    }
+
+    @Test
+    public void callsListenerOnItsExecutor() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        StubHandler handler = new StubHandler();
+        EventRouter router = new EventRouter().addEventListener("trade", handler, executor);
+
+        router.onMessage("trade", new MessageEvent("t1", null, ORIGIN));
+        assertEquals(0, handler.getMessageEvents().size());
+
+        tasks.get(0).run();
+        assertEquals(asList(new MessageEvent("t1", null, ORIGIN)), handler.getMessageEvents());
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.webbitserver.EventSourceConnection;
 import org.webbitserver.WebServer;
 import org.webbitserver.netty.contrib.EventSourceMessage;
@@ -11,9 +13,11 @@ import org.webbitserver.netty.contrib.EventSourceMessage;
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
@@ -31,7 +35,9 @@ public class EventSourceClientTest {
 
     @After
     public void die() throws IOException, InterruptedException {
-        eventSource.close().join();
+        if (eventSource != null) {
+            eventSource.close().join();
+        }
         webServer.stop().join();
     }
 
@@ -50,6 +56,152 @@ public class EventSourceClientTest {
         assertSentAndReceived(asList("f\ng\nh"));
     }
 
+    @Test
+    public void canShareClientBetweenEventSources() throws Exception {
+        startServer(asList("a", "b"));
+        EventSourceClient client = new EventSourceClient();
+        final CountDownLatch messageCountdown = new CountDownLatch(4);
+        EventSourceHandler handler = new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        EventSource other = client.eventSource(URI.create("http://localhost:59504/es/hello?echoThis=yo"), handler);
+        eventSource = client.eventSource(URI.create("http://localhost:59504/es/hello?echoThis=yo"), handler);
+        other.connect().await();
+        eventSource.connect().await();
+        try {
+            assertTrue("Didn't get all messages", messageCountdown.await(1000, TimeUnit.MILLISECONDS));
+        } finally {
+            other.close().join();
+            eventSource.close().join();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void queuesConnectsBeyondTheLimitPerOrigin() throws Exception {
+        startServer(asList("a"));
+        EventSourceClient client = new EventSourceClient(1, Executors.newSingleThreadExecutor(), 1);
+        final CountDownLatch messageCountdown = new CountDownLatch(2);
+        EventSourceHandler handler = new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        URI uri = URI.create("http://localhost:59504/es/hello?echoThis=yo");
+        EventSource first = client.eventSource(uri, handler);
+        eventSource = client.eventSource(uri, handler);
+        try {
+            first.connect().await();
+            eventSource.connect();
+            assertEquals(1, client.getConnectionManager().getPendingCount(uri));
+            assertEquals(1, (int) client.getConnectionManager().getConnectionCounts().get("http://localhost:59504"));
+
+            first.close().join();
+            assertTrue("Didn't get all messages", messageCountdown.await(1000, TimeUnit.MILLISECONDS));
+            assertEquals(0, client.getConnectionManager().getPendingCount(uri));
+        } finally {
+            eventSource.close().join();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void publisherDeliversMessagesAsRequested() throws Exception {
+        startServer(asList("a", "b"));
+        EventSourceClient client = new EventSourceClient();
+        final List<String> received = new CopyOnWriteArrayList<String>();
+        final CountDownLatch messageCountdown = new CountDownLatch(2);
+        EventSourcePublisher publisher = new EventSourcePublisher(client, 5000, URI.create("http://localhost:59504/es/hello?echoThis=yo"));
+        eventSource = publisher.eventSource();
+        try {
+            publisher.subscribe(new Subscriber<MessageEvent>() {
+                private Subscription subscription;
+
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(MessageEvent message) {
+                    received.add(message.data);
+                    messageCountdown.countDown();
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            assertTrue("Didn't get all messages", messageCountdown.await(1000, TimeUnit.MILLISECONDS));
+            assertEquals(asList("a yo", "b yo"), received);
+        } finally {
+            eventSource.close().join();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void hubSharesOneStreamBetweenSubscribers() throws Exception {
+        startServer(asList("a", "b"));
+        EventSourceClient client = new EventSourceClient();
+        final CountDownLatch messageCountdown = new CountDownLatch(4);
+        EventSourceHandler handler = new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        URI uri = URI.create("http://localhost:59504/es/hello?echoThis=yo");
+        EventSourceHub hub = new EventSourceHub(client, 5000);
+        try {
+            EventSourceHub.Subscription first = hub.subscribe(uri, handler);
+            EventSourceHub.Subscription second = hub.subscribe(uri, handler);
+            assertEquals(2, hub.getSubscriptionCount(uri));
+            assertTrue("Didn't get all messages", messageCountdown.await(1000, TimeUnit.MILLISECONDS));
+            assertEquals(1, (int) client.getConnectionManager().getConnectionCounts().get("http://localhost:59504"));
+
+            first.close();
+            second.close();
+            assertEquals(0, hub.getSubscriptionCount(uri));
+        } finally {
+            client.shutdown();
+        }
+    }
+
     @Test
     public void reconnectsIfServerIsDownAtCreationTime() throws Exception {
         List<String> messages = asList("a", "b");
@@ -121,6 +273,110 @@ public class EventSourceClientTest {
         assertTrue("Didn't get all messages", messageTwoCountdown.await(1000, TimeUnit.MILLISECONDS));
     }
 
+    @Test
+    public void reconnectsWithLastEventIdWhenServerGoesSilent() throws Exception {
+        final List<String> lastEventIds = new CopyOnWriteArrayList<String>();
+        final CountDownLatch reconnected = new CountDownLatch(2);
+        webServer
+                .add("/es/.*", new org.webbitserver.EventSourceHandler() {
+                    @Override
+                    public void onOpen(EventSourceConnection connection) throws Exception {
+                        lastEventIds.add(String.valueOf(connection.httpRequest().header("Last-Event-ID")));
+                        connection.send(new EventSourceMessage("a").id("1"));
+                        reconnected.countDown();
+                        // ...and then nothing, as if the connection had been dropped on the way
+                    }
+
+                    @Override
+                    public void onClose(EventSourceConnection connection) throws Exception {
+                    }
+                })
+                .start();
+        EventSourceClient client = new EventSourceClient();
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        final CountDownLatch errorCountdown = new CountDownLatch(1);
+        eventSource = client.eventSource(Executors.newSingleThreadExecutor(), 100, URI.create("http://localhost:59504/es/hello"), new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errors.add(t);
+                errorCountdown.countDown();
+            }
+        });
+        eventSource.setReadTimeoutMillis(200);
+        try {
+            eventSource.connect();
+            assertTrue("Didn't reconnect", reconnected.await(2000, TimeUnit.MILLISECONDS));
+            assertEquals(asList("null", "1"), lastEventIds.subList(0, 2));
+            assertTrue("Didn't get an error", errorCountdown.await(1000, TimeUnit.MILLISECONDS));
+            assertTrue(errors.get(0).getMessage().startsWith("Nothing read from"));
+        } finally {
+            eventSource.close().join();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void readTimeoutIgnoresStreamPausedByBackpressure() throws Exception {
+        final AtomicInteger opens = new AtomicInteger();
+        webServer
+                .add("/es/.*", new org.webbitserver.EventSourceHandler() {
+                    @Override
+                    public void onOpen(EventSourceConnection connection) throws Exception {
+                        opens.incrementAndGet();
+                        for (String message : asList("a", "b", "c", "d")) {
+                            connection.send(new EventSourceMessage(message));
+                        }
+                    }
+
+                    @Override
+                    public void onClose(EventSourceConnection connection) throws Exception {
+                    }
+                })
+                .start();
+        EventSourceClient client = new EventSourceClient();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch messageCountdown = new CountDownLatch(4);
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        eventSource = client.eventSource(100, URI.create("http://localhost:59504/es/hello"), client.boundedDispatcher(new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) throws Exception {
+                release.await();
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errors.add(t);
+            }
+        }, 2, 0));
+        eventSource.setReadTimeoutMillis(200);
+        try {
+            eventSource.connect();
+            // Paused for several timeouts, with the messages the server sent still waiting for the handler
+            Thread.sleep(1000);
+            assertEquals(asList(), errors);
+            assertEquals(1, opens.get());
+
+            release.countDown();
+            assertTrue("Didn't get all messages", messageCountdown.await(1000, TimeUnit.MILLISECONDS));
+        } finally {
+            eventSource.close().join();
+            client.shutdown();
+        }
+    }
+
     private void assertSentAndReceived(final List<String> messages) throws IOException, InterruptedException {
         startServer(messages);
         CountDownLatch messageCountdown = new CountDownLatch(messages.size());
@@ -0,0 +1,110 @@
+package com.github.eventsource.client;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EventSourcePublisherTest {
+    private EventSourceClient client;
+    private EventSourcePublisher publisher;
+    private RecordingSubscriber subscriber;
+
+    @Before
+    public void setup() {
+        client = new EventSourceClient();
+        // Nothing listens there - the publisher is fed through its dispatcher
+        publisher = new EventSourcePublisher(client, 60000, URI.create("http://localhost:59599/es"));
+        subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+    }
+
+    @After
+    public void teardown() {
+        publisher.eventSource().close();
+        client.shutdown();
+    }
+
+    @Test
+    public void signalsRefusedStreamToSubscriber() throws Exception {
+        subscriber.subscription.request(1);
+        publisher.dispatcher().onMessage("message", new MessageEvent("a"));
+        publisher.dispatcher().onMessage("message", new MessageEvent("b"));
+        BadResponseException refused = new BadResponseException("Bad status from http://localhost:59599/es: 404", 404);
+        publisher.dispatcher().onError(refused);
+        publisher.dispatcher().onError(new BadResponseException("Bad status from http://localhost:59599/es: 404", 404));
+        subscriber.subscription.request(1);
+
+        assertEquals(asList("a"), subscriber.received);
+        assertSame(refused, subscriber.error);
+        assertEquals(0, subscriber.completions);
+    }
+
+    @Test
+    public void keepsErrorsFollowedByReconnectFromSubscriber() throws Exception {
+        subscriber.subscription.request(2);
+        publisher.dispatcher().onError(new EventSourceException("Failed to connect to http://localhost:59599/es", new ConnectException()));
+        publisher.dispatcher().onError(new EventSourceException("Nothing read from http://localhost:59599/es for too long - reconnecting"));
+        publisher.dispatcher().onMessage("message", new MessageEvent("a"));
+        publisher.close();
+
+        assertEquals(asList("a"), subscriber.received);
+        assertNull(subscriber.error);
+        assertEquals(1, subscriber.completions);
+    }
+
+    @Test
+    public void cancelsSubscriberThatThrows() throws Exception {
+        subscriber.failOn = "a";
+        subscriber.subscription.request(5);
+        publisher.dispatcher().onMessage("message", new MessageEvent("a"));
+        publisher.dispatcher().onMessage("message", new MessageEvent("b"));
+        publisher.close();
+
+        assertEquals(asList("a"), subscriber.received);
+        assertNull(subscriber.error);
+        assertEquals(0, subscriber.completions);
+    }
+
+    private static class RecordingSubscriber implements Subscriber<MessageEvent> {
+        private final List<String> received = new ArrayList<String>();
+        private Subscription subscription;
+        private Throwable error;
+        private int completions;
+        private String failOn;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(MessageEvent message) {
+            received.add(message.data);
+            if (message.data.equals(failOn)) {
+                throw new IllegalStateException("Can't handle " + message.data);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.ConnectionHandler;
+import com.github.eventsource.client.impl.EventStreamEncoder;
+import com.github.eventsource.client.impl.EventStreamParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class EventStreamEncoderTest {
+    private static final String ORIGIN = "http://host.com:99/foo";
+    private EventSourceHandler eh;
+    private ConnectionHandler ch;
+    private EventStreamParser esp;
+
+    @Before
+    public void setup() {
+        eh = mock(EventSourceHandler.class);
+        ch = mock(ConnectionHandler.class);
+        esp = new EventStreamParser(ORIGIN, eh, ch);
+    }
+
+    @Test
+    public void encodesEventIdAndMultiLineData() throws Exception {
+        assertEquals("event: update\nid: 7\ndata: a\ndata: b\ndata\ndata: c\n\n",
+                new String(EventStreamEncoder.encode("update", "7", "a\r\nb\r\rc"), "UTF-8"));
+    }
+
+    @Test
+    public void leavesOutDefaultEventName() throws Exception {
+        assertEquals("data: hello\n\n", new String(EventStreamEncoder.encode("message", null, "hello"), "UTF-8"));
+    }
+
+    @Test
+    public void roundTripsThroughParser() throws Exception {
+        String data = " leading space\nbl\u00e5 b\u00e6r\n";
+        parse(EventStreamEncoder.comment("heartbeat\nstill here"));
+        parse(EventStreamEncoder.encode("update", "42", data));
+
+        verify(eh).onMessage(eq("update"), eq(new MessageEvent(data, "42", ORIGIN)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLineBreakInId() throws Exception {
+        EventStreamEncoder.encode(null, "1\n2", "data");
+    }
+
+    private void parse(byte[] bytes) {
+        esp.bytes(bytes, 0, bytes.length);
+    }
+}
@@ -2,11 +2,17 @@ package com.github.eventsource.client;
 
 import com.github.eventsource.client.impl.ConnectionHandler;
 import com.github.eventsource.client.impl.EventStreamParser;
+import com.github.eventsource.client.journal.JournalReader;
+import com.github.eventsource.client.journal.JournalWriter;
 import com.github.eventsource.client.stubs.StubHandler;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+
 import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -121,4 +127,105 @@ public class EventStreamParserTest {
                 "\n");
         assertEquals(asList(new MessageEvent("hello\nworld"), new MessageEvent("bonjour\nmonde")), stubHandler.getMessageEvents());
     }
+
+    @Test
+    public void dispatchesMessagesSplitAcrossChunks() throws Exception {
+        bytes("data: hel");
+        bytes("lo\r");
+        bytes("\nid: 1\r\n\r");
+        bytes("\n");
+
+        verify(eh).onMessage(eq("message"), eq(new MessageEvent("hello", "1", ORIGIN)));
+    }
+
+    @Test
+    public void decodesMultiByteCharactersSplitAcrossChunks() throws Exception {
+        byte[] bytes = "data: bl\u00e5b\u00e6r\n\n".getBytes("UTF-8");
+        esp.bytes(bytes, 0, 9);
+        esp.bytes(bytes, 9, bytes.length - 9);
+
+        verify(eh).onMessage(eq("message"), eq(new MessageEvent("bl\u00e5b\u00e6r", null, ORIGIN)));
+    }
+
+    @Test
+    public void treatsCarriageReturnAsLineTerminator() throws Exception {
+        bytes("data: hello\revent: beeroclock\r\r");
+
+        verify(eh).onMessage(eq("beeroclock"), eq(new MessageEvent("hello", null, ORIGIN)));
+    }
+
+    @Test
+    public void removesOnlyTheLeadingSpaceOfAValue() throws Exception {
+        bytes("data:  hello world\n\n");
+
+        verify(eh).onMessage(eq("message"), eq(new MessageEvent(" hello world", null, ORIGIN)));
+    }
+
+    @Test
+    public void ignoresRetryTimeTooLargeForALong() throws Exception {
+        bytes("retry: 99999999999999999999\n\n");
+
+        verifyNoMoreInteractions(ch);
+    }
+
+    @Test
+    public void keepsDataAsBytesInRawDataMode() throws Exception {
+        StubHandler handler = new StubHandler();
+        esp = new EventStreamParser(ORIGIN, handler, ch);
+        esp.setRawData(true);
+        bytes("data: bl\u00e5\ndata: b\u00e6r\n\n");
+
+        MessageEvent message = handler.getMessageEvents().get(0);
+        assertEquals(null, message.data);
+        ByteBuffer dataBytes = message.getDataBytes();
+        byte[] actual = new byte[dataBytes.remaining()];
+        dataBytes.get(actual);
+        assertArrayEquals("bl\u00e5\nb\u00e6r".getBytes("UTF-8"), actual);
+        assertEquals("bl\u00e5\nb\u00e6r", message.getData());
+        assertEquals(new MessageEvent("bl\u00e5\nb\u00e6r", null, ORIGIN), message);
+    }
+
+    @Test
+    public void dropsEventsRejectedByFilterButKeepsTheirId() throws Exception {
+        esp.setEventFilter(new EventFilter() {
+            @Override
+            public boolean accepts(String event) {
+                return event.equals("trade");
+            }
+        });
+        esp.lines("event: quote\nid: 1\ndata: q1\n\nevent: trade\nid: 2\ndata: t1\n\n");
+
+        verify(eh).onMessage(eq("trade"), eq(new MessageEvent("t1", "2", ORIGIN)));
+        verifyNoMoreInteractions(eh);
+        verify(ch).setLastEventId("1");
+        verify(ch).setLastEventId("2");
+    }
+
+    @Test
+    public void journalsEvents() throws Exception {
+        File directory = File.createTempFile("journal", "");
+        directory.delete();
+        JournalWriter journal = new JournalWriter(directory, JournalWriter.DEFAULT_SEGMENT_SIZE);
+        esp.setJournal(journal);
+        esp.line("event: update");
+        esp.line("id: 1");
+        esp.line("data: hello");
+        esp.line("");
+        journal.close();
+
+        StubHandler handler = new StubHandler();
+        new JournalReader(directory).replay(handler, 0);
+        for (File segment : directory.listFiles()) {
+            segment.delete();
+        }
+        directory.delete();
+
+        verify(eh).onMessage(eq("update"), eq(new MessageEvent("hello", "1", ORIGIN)));
+        assertEquals(asList(new MessageEvent("hello", "1", ORIGIN)), handler.getMessageEvents());
+    }
+
+    private void bytes(String chunk) throws Exception {
+        byte[] bytes = chunk.getBytes("UTF-8");
+        esp.bytes(bytes, 0, bytes.length);
+    }
 }
@@ -0,0 +1,76 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.EventStreamSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class EventStreamSessionTest {
+    private static final String URI_STRING = "http://host.com:99/foo";
+    private EventDispatcher dispatcher;
+    private EventStreamSession session;
+
+    @Before
+    public void setup() {
+        dispatcher = mock(EventDispatcher.class);
+        session = new EventStreamSession(URI.create(URI_STRING), dispatcher, 1000);
+        session.connected();
+    }
+
+    @Test
+    public void resumesFromLastEventIdOfPreviousConnection() throws Exception {
+        assertNull(session.requestHeaders().get("Last-Event-ID"));
+
+        assertTrue(feed("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\n\r\nid: 7\ndata: hello\n\n"));
+        verify(dispatcher).onConnect();
+        verify(dispatcher).onMessage(eq("message"), eq(new MessageEvent("hello", "7", URI_STRING)));
+        session.closed();
+
+        Map<String, String> headers = session.requestHeaders();
+        assertEquals("host.com:99", headers.get("Host"));
+        assertEquals("7", headers.get("Last-Event-ID"));
+    }
+
+    @Test(expected = EventSourceException.class)
+    public void rejectsResponseThatIsNotEventStream() throws Exception {
+        feed("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\n\r\n<html>");
+    }
+
+    @Test
+    public void ignoresContentBeforeResponseIsAccepted() throws Exception {
+        session.content("data: hello\n\n".getBytes("UTF-8"), 0, 13);
+        session.readComplete();
+
+        verifyZeroInteractions(dispatcher);
+    }
+
+    @Test
+    public void asksForCloseWhenServerEndsResponse() throws Exception {
+        assertFalse(feed("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nContent-Length: 13\r\n\r\ndata: hello\n\n"));
+    }
+
+    @Test
+    public void neverWaitsLessThanServersRetryTime() throws Exception {
+        feed("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\n\r\nretry: 5000\n\n");
+        session.closed();
+
+        assertEquals(5000, session.reconnectDelayMillis());
+    }
+
+    private boolean feed(String response) throws Exception {
+        byte[] bytes = response.getBytes("UTF-8");
+        return session.bytes(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.ExponentialBackoff.Jitter;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExponentialBackoffTest {
+    @Test
+    public void doublesDelayUpToMaximum() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(10000, Jitter.NONE, 0);
+
+        assertEquals(1000, backoff.delayMillis(1, 0, 1000));
+        assertEquals(2000, backoff.delayMillis(2, 1000, 1000));
+        assertEquals(8000, backoff.delayMillis(4, 4000, 1000));
+        assertEquals(10000, backoff.delayMillis(5, 8000, 1000));
+        assertEquals(10000, backoff.delayMillis(1000, 10000, 1000));
+    }
+
+    @Test
+    public void backsOffFromInitialDelayWhenReconnectionTimeIsZero() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 10000, Jitter.NONE, 0);
+
+        assertEquals(100, backoff.delayMillis(1, 0, 0));
+        assertEquals(200, backoff.delayMillis(2, 100, 0));
+        assertEquals(800, backoff.delayMillis(4, 400, 0));
+        assertEquals(1000, backoff.delayMillis(1, 0, 1000));
+    }
+
+    @Test
+    public void jitterNeverGoesBelowInitialDelay() throws Exception {
+        ExponentialBackoff full = new ExponentialBackoff(100, 10000, Jitter.FULL, 0);
+        ExponentialBackoff decorrelated = new ExponentialBackoff(100, 10000, Jitter.DECORRELATED, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(full.delayMillis(1, 0, 0) >= 100);
+            assertTrue(decorrelated.delayMillis(1, 0, 0) >= 100);
+        }
+    }
+
+    @Test
+    public void fullJitterStaysBetweenReconnectionTimeAndExponentialDelay() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(10000, Jitter.FULL, 0);
+        for (int i = 0; i < 1000; i++) {
+            long delay = backoff.delayMillis(3, 0, 1000);
+            assertTrue("delay " + delay, delay >= 1000 && delay <= 4000);
+        }
+    }
+
+    @Test
+    public void fullJitterSpreadsFirstAttemptUpToTwiceReconnectionTime() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(10000, Jitter.FULL, 0);
+        Set<Long> delays = new HashSet<Long>();
+        for (int i = 0; i < 1000; i++) {
+            long delay = backoff.delayMillis(1, 0, 1000);
+            assertTrue("delay " + delay, delay >= 1000 && delay <= 2000);
+            delays.add(delay);
+        }
+        assertTrue("distinct delays " + delays.size(), delays.size() > 100);
+    }
+
+    @Test
+    public void decorrelatedJitterStaysBetweenReconnectionTimeAndThreeTimesPreviousDelay() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(10000, Jitter.DECORRELATED, 0);
+        for (int i = 0; i < 1000; i++) {
+            long delay = backoff.delayMillis(2, 2000, 1000);
+            assertTrue("delay " + delay, delay >= 1000 && delay <= 6000);
+            assertTrue("delay " + delay, backoff.delayMillis(9, 9000, 1000) <= 10000);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.eventsource.client;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FileCheckpointStoreTest {
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+    private File file;
+    private ScheduledThreadPoolExecutor executor;
+
+    @Before
+    public void createFile() throws Exception {
+        file = File.createTempFile("checkpoint", ".id");
+        file.delete();
+        // Records the writes, and runs them only when the test says so
+        executor = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                tasks.add(command);
+                return super.schedule(command, 1, TimeUnit.DAYS);
+            }
+        };
+    }
+
+    @After
+    public void deleteFile() {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void loadsNothingBeforeFirstSave() throws Exception {
+        assertEquals(null, new FileCheckpointStore(file, null, 0).load());
+    }
+
+    @Test
+    public void writesEveryIdWithoutFlushInterval() throws Exception {
+        new FileCheckpointStore(file, null, 0).save("42");
+
+        assertEquals("42", new FileCheckpointStore(file, null, 0).load());
+    }
+
+    @Test
+    public void writesOnlyLatestIdWhenFlushIsDue() throws Exception {
+        FileCheckpointStore store = new FileCheckpointStore(file, executor, 1000);
+        store.save("1");
+        store.save("2");
+        assertEquals(1, tasks.size());
+        assertEquals(null, store.load());
+
+        tasks.get(0).run();
+        assertEquals("2", store.load());
+        assertNull(store.getLastFailure());
+    }
+
+    @Test
+    public void keepsFailedBackgroundWriteUntilOneSucceeds() throws Exception {
+        File missing = new File(file, "checkpoint.id");
+        FileCheckpointStore store = new FileCheckpointStore(missing, executor, 1000);
+        store.save("1");
+        tasks.get(0).run();
+        assertNotNull(store.getLastFailure());
+
+        file.mkdir();
+        try {
+            store.save("2");
+            tasks.get(1).run();
+            assertNull(store.getLastFailure());
+            assertEquals("2", store.load());
+        } finally {
+            missing.delete();
+            new File(missing.getPath() + ".tmp").delete();
+        }
+    }
+}
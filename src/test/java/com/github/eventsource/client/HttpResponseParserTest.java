@@ -0,0 +1,159 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.ConnectionHandler;
+import com.github.eventsource.client.impl.ContentInflater;
+import com.github.eventsource.client.impl.EventStreamParser;
+import com.github.eventsource.client.impl.HttpResponseParser;
+import com.github.eventsource.client.stubs.StubHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class HttpResponseParserTest {
+    private StubHandler handler;
+    private EventStreamParser eventStreamParser;
+    private ContentInflater inflater;
+    private Integer status;
+    private Map<String, String> headers;
+    private boolean ended;
+    private HttpResponseParser parser;
+
+    @Before
+    public void setup() {
+        handler = new StubHandler();
+        eventStreamParser = new EventStreamParser("http://host.com/", handler, mock(ConnectionHandler.class));
+        parser = new HttpResponseParser(new HttpResponseParser.Handler() {
+            @Override
+            public void onResponse(int s, Map<String, String> h) throws Exception {
+                status = s;
+                headers = h;
+                inflater = ContentInflater.forEncoding(h.get("content-encoding"));
+            }
+
+            @Override
+            public void onContent(byte[] bytes, int offset, int length) throws Exception {
+                if (inflater != null) {
+                    inflater.bytes(bytes, offset, length, eventStreamParser);
+                } else {
+                    eventStreamParser.bytes(bytes, offset, length);
+                }
+            }
+
+            @Override
+            public void onEnd() throws Exception {
+                ended = true;
+            }
+        });
+    }
+
+    @Test
+    public void parsesStatusAndHeadersOfHttp10Response() throws Exception {
+        feed("HTTP/1.0 200 OK\r\nContent-Type: text/event-stream; charset=utf-8\r\nX-Foo: a\r\nX-Foo: b\r\n\r\ndata: hello\n\n");
+
+        assertEquals(200, (int) status);
+        assertEquals("text/event-stream; charset=utf-8", headers.get("content-type"));
+        assertEquals("a,b", headers.get("x-foo"));
+        assertEquals(asList(new MessageEvent("hello", null, "http://host.com/")), handler.getMessageEvents());
+    }
+
+    @Test
+    public void removesChunkFramingFromTheBody() throws Exception {
+        String response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                "6\r\ndata: \r\n" +
+                "7;ext=1\r\nhello\n\n\r\n" +
+                "0\r\n\r\n";
+        feedInPieces(response.getBytes("UTF-8"), 3);
+
+        assertEquals(asList(new MessageEvent("hello", null, "http://host.com/")), handler.getMessageEvents());
+        assertEquals(true, ended);
+    }
+
+    @Test
+    public void readsHeaderNamesTheSameWayInEveryLocale() throws Exception {
+        Locale locale = Locale.getDefault();
+        // Turkish lower-cases I to a dotless i
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            feed("HTTP/1.1 200 OK\r\nTRANSFER-ENCODING: CHUNKED\r\n\r\n" +
+                    "d\r\ndata: hello\n\n\r\n" +
+                    "0\r\n\r\n");
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        assertEquals("CHUNKED", headers.get("transfer-encoding"));
+        assertEquals(asList(new MessageEvent("hello", null, "http://host.com/")), handler.getMessageEvents());
+        assertEquals(true, ended);
+    }
+
+    @Test
+    public void endsAfterContentLength() throws Exception {
+        feed("HTTP/1.1 200 OK\r\nContent-Length: 13\r\n\r\ndata: hello\n\ndata: ignored\n\n");
+
+        assertEquals(asList(new MessageEvent("hello", null, "http://host.com/")), handler.getMessageEvents());
+        assertEquals(true, ended);
+    }
+
+    @Test
+    public void inflatesGzipBody() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(body);
+        gzip.write("data: hello\n\ndata: world\n\n".getBytes("UTF-8"));
+        gzip.close();
+
+        feedInPieces(compressedResponse("gzip", body.toByteArray()), 1);
+
+        assertEquals(asList(new MessageEvent("hello", null, "http://host.com/"), new MessageEvent("world", null, "http://host.com/")), handler.getMessageEvents());
+    }
+
+    @Test
+    public void inflatesZlibAndRawDeflateBodies() throws Exception {
+        for (boolean raw : new boolean[]{false, true}) {
+            setup();
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+            deflater.setInput("data: hello\n\n".getBytes("UTF-8"));
+            deflater.finish();
+            byte[] buffer = new byte[256];
+            int length = deflater.deflate(buffer);
+            byte[] body = new byte[length];
+            System.arraycopy(buffer, 0, body, 0, length);
+
+            feedInPieces(compressedResponse("deflate", body), 5);
+
+            assertEquals(asList(new MessageEvent("hello", null, "http://host.com/")), handler.getMessageEvents());
+        }
+    }
+
+    @Test(expected = EventSourceException.class)
+    public void rejectsNonHttpResponse() throws Exception {
+        feed("SSH-2.0-OpenSSH\r\n");
+    }
+
+    private byte[] compressedResponse(String encoding, byte[] body) throws Exception {
+        byte[] head = ("HTTP/1.1 200 OK\r\nContent-Encoding: " + encoding + "\r\n\r\n").getBytes("UTF-8");
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    private void feed(String response) throws Exception {
+        byte[] bytes = response.getBytes("UTF-8");
+        parser.bytes(bytes, 0, bytes.length);
+    }
+
+    private void feedInPieces(byte[] bytes, int pieceSize) throws Exception {
+        for (int i = 0; i < bytes.length; i += pieceSize) {
+            parser.bytes(bytes, i, Math.min(pieceSize, bytes.length - i));
+        }
+    }
+}
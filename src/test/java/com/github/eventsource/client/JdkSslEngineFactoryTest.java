@@ -0,0 +1,199 @@
+package com.github.eventsource.client;
+
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JdkSslEngineFactoryTest {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @Test
+    public void createsClientEnginesForHostAndPortSoSessionsCanBeResumed() throws Exception {
+        SSLEngine engine = new JdkSslEngineFactory().createSslEngine("example.com", 8443);
+
+        assertTrue(engine.getUseClientMode());
+        assertEquals("example.com", engine.getPeerHost());
+        assertEquals(8443, engine.getPeerPort());
+    }
+
+    @Test
+    public void verifiesTheServersHostName() throws Exception {
+        SSLEngine engine = new JdkSslEngineFactory().createSslEngine("example.com", 443);
+
+        assertEquals("HTTPS", engine.getSSLParameters().getEndpointIdentificationAlgorithm());
+    }
+
+    @Test
+    public void acceptsTrustedCertificateForTheHost() throws Exception {
+        SSLContext context = localhostContext();
+
+        handshake(new JdkSslEngineFactory(context).createSslEngine("localhost", 443), serverEngine(context));
+    }
+
+    @Test
+    public void rejectsTrustedCertificateForAnotherHost() throws Exception {
+        SSLContext context = localhostContext();
+
+        try {
+            handshake(new JdkSslEngineFactory(context).createSslEngine("example.com", 443), serverEngine(context));
+            fail("Handshake with a certificate for localhost should fail for example.com");
+        } catch (SSLHandshakeException expected) {
+        }
+    }
+
+    @Test
+    public void resumesSessionWhenEventSourceReconnects() throws Exception {
+        SSLContext context = localhostContext();
+        final SSLServerSocket serverSocket = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0);
+        // Session ids identify resumed sessions in TLS 1.2 - TLS 1.3 resumes with a new one
+        serverSocket.setEnabledProtocols(new String[]{"TLSv1.2"});
+        final List<String> sessionIds = new CopyOnWriteArrayList<String>();
+        Thread server = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Each connection gets one event and is then closed, so the EventSource reconnects
+                    for (int i = 0; i < 2; i++) {
+                        SSLSocket socket = (SSLSocket) serverSocket.accept();
+                        try {
+                            BufferedReader request = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                            String line;
+                            while ((line = request.readLine()) != null && line.length() > 0) {
+                                // Up to the end of the request headers
+                            }
+                            sessionIds.add(Arrays.toString(socket.getSession().getId()));
+                            OutputStream response = socket.getOutputStream();
+                            response.write(("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\n\r\ndata: " + i + "\n\n").getBytes("UTF-8"));
+                            response.flush();
+                        } finally {
+                            socket.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        server.start();
+
+        final CountDownLatch messageCountdown = new CountDownLatch(2);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        EventSourceClient client = new EventSourceClient(1, executor).setSslEngineFactory(new JdkSslEngineFactory(context));
+        EventSource eventSource = client.eventSource(executor, 100, URI.create("https://localhost:" + serverSocket.getLocalPort() + "/es"), new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        });
+        try {
+            eventSource.connect();
+            assertTrue("Didn't get both messages", messageCountdown.await(5000, TimeUnit.MILLISECONDS));
+        } finally {
+            eventSource.close().join();
+            client.shutdown();
+            serverSocket.close();
+            server.join(1000);
+        }
+
+        assertEquals(2, sessionIds.size());
+        assertEquals(sessionIds.get(0), sessionIds.get(1));
+    }
+
+    /**
+     * Both ends use the certificate for localhost in localhost.jks, and trust it.
+     */
+    private static SSLContext localhostContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = JdkSslEngineFactoryTest.class.getResourceAsStream("/localhost.jks");
+        try {
+            keyStore.load(in, PASSWORD);
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    private static SSLEngine serverEngine(SSLContext context) {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(false);
+        return engine;
+    }
+
+    /**
+     * Runs a handshake between the two engines in memory.
+     */
+    private static void handshake(SSLEngine client, SSLEngine server) throws Exception {
+        ByteBuffer clientToServer = ByteBuffer.allocate(1 << 16);
+        ByteBuffer serverToClient = ByteBuffer.allocate(1 << 16);
+        ByteBuffer application = ByteBuffer.allocate(1 << 16);
+        client.beginHandshake();
+        server.beginHandshake();
+        for (int i = 0; i < 100; i++) {
+            step(client, clientToServer, serverToClient, application);
+            step(server, serverToClient, clientToServer, application);
+            if (client.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING
+                    && server.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING) {
+                return;
+            }
+        }
+        fail("Handshake didn't finish");
+    }
+
+    private static void step(SSLEngine engine, ByteBuffer out, ByteBuffer in, ByteBuffer application) throws SSLException {
+        engine.wrap(ByteBuffer.allocate(0), out);
+        runTasks(engine);
+        in.flip();
+        engine.unwrap(in, application);
+        in.compact();
+        runTasks(engine);
+        application.clear();
+    }
+
+    private static void runTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+}
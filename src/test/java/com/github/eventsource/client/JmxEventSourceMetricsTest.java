@@ -0,0 +1,108 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.AsyncEventSourceHandler;
+import com.github.eventsource.client.impl.ConnectionHandler;
+import com.github.eventsource.client.impl.EventStreamParser;
+import com.github.eventsource.client.stubs.StubHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class JmxEventSourceMetricsTest {
+    private JmxEventSourceMetrics metrics;
+
+    @Before
+    public void setup() {
+        metrics = new JmxEventSourceMetrics("http://host.com/es");
+    }
+
+    @After
+    public void unregister() {
+        metrics.unregister();
+    }
+
+    @Test
+    public void countsParsedAndDeliveredEvents() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        AsyncEventSourceHandler async = new AsyncEventSourceHandler(new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                tasks.add(task);
+            }
+        }, new StubHandler());
+        async.setMetrics(metrics);
+        EventStreamParser parser = new EventStreamParser("http://host.com/es", async, mock(ConnectionHandler.class));
+        parser.setMetrics(metrics);
+
+        byte[] bytes = "data: a\n\ndata: b\n\n".getBytes("UTF-8");
+        parser.bytes(bytes, 0, bytes.length);
+        assertEquals(2, metrics.getQueueDepth());
+        assertEquals(4, metrics.getLinesParsed());
+
+        tasks.remove(0).run();
+        assertEquals(1, metrics.getEventsDelivered());
+        assertEquals(1, metrics.getQueueDepth());
+        assertTrue(metrics.getMillisSinceLastEvent() >= 0);
+    }
+
+    @Test
+    public void addsUpAllStreamsInTotal() throws Exception {
+        long before = JmxEventSourceMetrics.total().getReconnectCount();
+        metrics.reconnecting(null, 1000);
+
+        assertEquals(1, metrics.getReconnectCount());
+        assertEquals("Closed by server", metrics.getLastReconnectCause());
+        assertEquals(before + 1, JmxEventSourceMetrics.total().getReconnectCount());
+    }
+
+    @Test
+    public void keepsCountsOfUnregisteredStreamsInTotal() throws Exception {
+        JmxEventSourceMetrics total = JmxEventSourceMetrics.total();
+        long before = total.getBytesRead();
+        JmxEventSourceMetrics other = new JmxEventSourceMetrics("http://other.com/es");
+        other.bytesRead(10);
+        metrics.bytesRead(5);
+        assertEquals(before + 15, total.getBytesRead());
+
+        other.unregister();
+        assertEquals(before + 15, total.getBytesRead());
+        metrics.bytesRead(1);
+        assertEquals(before + 16, total.getBytesRead());
+    }
+
+    @Test
+    public void spreadsEventsOverAllIntervalsOfAnIdleGap() throws Exception {
+        long start = System.nanoTime();
+        JmxEventSourceMetrics stream = new JmxEventSourceMetrics("http://idle.com/es");
+        try {
+            for (int i = 0; i < 30; i++) {
+                stream.eventDelivered(0, 0);
+            }
+            // Six 5 second intervals without a tick: 30 events in 30 seconds
+            stream.tickIfDue(start + TimeUnit.SECONDS.toNanos(32));
+
+            assertEquals(1.0, stream.getEventsPerSecond(), 0.001);
+        } finally {
+            stream.unregister();
+        }
+    }
+
+    @Test
+    public void isRegisteredAsMBean() throws Exception {
+        ObjectName name = new ObjectName("com.github.eventsource:type=EventSourceMetrics,name=" + ObjectName.quote("http://host.com/es"));
+        metrics.bytesRead(42);
+
+        assertEquals(42L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "BytesRead"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.ConnectionHandler;
+import com.github.eventsource.client.impl.EventDispatcher;
+import com.github.eventsource.client.impl.EventStreamParser;
+import com.github.eventsource.client.journal.JournalReader;
+import com.github.eventsource.client.journal.JournalWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class JournalTest {
+    private static final String ORIGIN = "http://example.com/es";
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = File.createTempFile("journal", "");
+        directory.delete();
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void replaysAppendedEvents() throws Exception {
+        JournalWriter writer = new JournalWriter(directory, JournalWriter.DEFAULT_SEGMENT_SIZE);
+        append(writer, ORIGIN, "message", "1", "hello");
+        append(writer, ORIGIN, "update", null, "world");
+        writer.close();
+
+        List<String> events = replay();
+
+        assertEquals("[message:MessageEvent{data='hello', lastEventId='1', origin='" + ORIGIN + "'}, " +
+                "update:MessageEvent{data='world', lastEventId='null', origin='" + ORIGIN + "'}]", events.toString());
+    }
+
+    @Test
+    public void rollsSegmentsWhenFullOrOriginChanges() throws Exception {
+        JournalWriter writer = new JournalWriter(directory, 64);
+        for (int i = 0; i < 5; i++) {
+            append(writer, ORIGIN, "message", String.valueOf(i), "data " + i);
+        }
+        append(writer, "http://other.com/es", "message", "5", "data 5");
+        writer.close();
+
+        List<String> events = replay();
+
+        assertEquals(6, events.size());
+        assertEquals("message:MessageEvent{data='data 4', lastEventId='4', origin='" + ORIGIN + "'}", events.get(4));
+        assertEquals("message:MessageEvent{data='data 5', lastEventId='5', origin='http://other.com/es'}", events.get(5));
+        assertEquals(true, directory.listFiles().length > 2);
+    }
+
+    @Test
+    public void continuesAfterLastEventWhenReopened() throws Exception {
+        JournalWriter writer = new JournalWriter(directory, JournalWriter.DEFAULT_SEGMENT_SIZE);
+        append(writer, ORIGIN, "message", "1", "first");
+        writer.close();
+        writer = new JournalWriter(directory, JournalWriter.DEFAULT_SEGMENT_SIZE);
+        append(writer, ORIGIN, "message", "2", "second");
+        writer.close();
+
+        List<String> events = replay();
+
+        assertEquals(2, events.size());
+        assertEquals("message:MessageEvent{data='second', lastEventId='2', origin='" + ORIGIN + "'}", events.get(1));
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void isUsedByOneEventSourceAtATime() throws Exception {
+        JournalWriter writer = new JournalWriter(directory, JournalWriter.DEFAULT_SEGMENT_SIZE);
+        EventStreamParser first = new EventStreamParser(ORIGIN, mock(EventDispatcher.class), mock(ConnectionHandler.class));
+        EventStreamParser second = new EventStreamParser("http://other.com/es", mock(EventDispatcher.class), mock(ConnectionHandler.class));
+        first.setJournal(writer);
+        first.setJournal(writer);
+        try {
+            second.setJournal(writer);
+            fail("Shared a journal between EventSources");
+        } catch (IllegalStateException expected) {
+        }
+
+        first.setJournal(null);
+        second.setJournal(writer);
+        writer.close();
+    }
+
+    private static void append(JournalWriter writer, String origin, String event, String lastEventId, String data) throws Exception {
+        byte[] bytes = data.getBytes("UTF-8");
+        writer.append(origin, System.currentTimeMillis(), event, lastEventId, bytes, 0, bytes.length);
+    }
+
+    private List<String> replay() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        new JournalReader(directory).replay(new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                events.add(event + ":" + message);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }, 0);
+        return events;
+    }
+}
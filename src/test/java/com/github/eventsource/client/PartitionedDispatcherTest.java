@@ -0,0 +1,170 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.FlowControl;
+import com.github.eventsource.client.impl.PartitionedDispatcher;
+import com.github.eventsource.client.stubs.StubHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedDispatcherTest {
+    private List<Runnable> tasks;
+    private Executor executor;
+
+    @Before
+    public void setup() {
+        tasks = new ArrayList<Runnable>();
+        executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                tasks.add(task);
+            }
+        };
+    }
+
+    @Test
+    public void schedulesEachPartitionOnce() throws Exception {
+        StubHandler handler = new StubHandler();
+        PartitionedDispatcher dispatcher = new PartitionedDispatcher(executor, handler, 4, KeyExtractor.EVENT_NAME);
+        dispatcher.onMessage("a", new MessageEvent("1"));
+        dispatcher.onMessage("a", new MessageEvent("2"));
+        dispatcher.onMessage("a", new MessageEvent("3"));
+        assertEquals(1, tasks.size());
+
+        tasks.remove(0).run();
+
+        assertEquals(asList(new MessageEvent("1"), new MessageEvent("2"), new MessageEvent("3")), handler.getMessageEvents());
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void checkpointsIdOnlyWhenAllEarlierMessagesAreDelivered() throws Exception {
+        final List<String> saved = new ArrayList<String>();
+        PartitionedDispatcher dispatcher = new PartitionedDispatcher(executor, new StubHandler(), 2, new KeyExtractor() {
+            @Override
+            public Object key(String event, MessageEvent message) {
+                return Integer.valueOf(event);
+            }
+        });
+        dispatcher.setCheckpointStore(new CheckpointStore() {
+            @Override
+            public String load() {
+                return null;
+            }
+
+            @Override
+            public void save(String lastEventId) {
+                saved.add(lastEventId);
+            }
+        });
+        dispatcher.onMessage("0", new MessageEvent("a", "1", "origin"));
+        dispatcher.onMessage("1", new MessageEvent("b", "2", "origin"));
+        assertEquals(2, tasks.size());
+
+        // The second partition finishes first
+        tasks.get(1).run();
+        assertEquals(0, saved.size());
+
+        tasks.get(0).run();
+        assertEquals(asList("2"), saved);
+    }
+
+    @Test
+    public void passesExtractorFailureToOnErrorWithoutHoldingUpReadsOrCheckpoints() throws Exception {
+        final List<String> saved = new ArrayList<String>();
+        final List<Boolean> readable = new ArrayList<Boolean>();
+        StubHandler handler = new StubHandler();
+        PartitionedDispatcher dispatcher = new PartitionedDispatcher(executor, handler, 2, new KeyExtractor() {
+            @Override
+            public Object key(String event, MessageEvent message) {
+                return Integer.valueOf(event);
+            }
+        }, 1, 0);
+        dispatcher.setFlowControl(new FlowControl() {
+            @Override
+            public void setReadable(boolean isReadable) {
+                readable.add(isReadable);
+            }
+        });
+        dispatcher.setCheckpointStore(new CheckpointStore() {
+            @Override
+            public String load() {
+                return null;
+            }
+
+            @Override
+            public void save(String lastEventId) {
+                saved.add(lastEventId);
+            }
+        });
+        dispatcher.onMessage("not a number", new MessageEvent("a", "1", "origin"));
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(0, readable.size());
+
+        dispatcher.onMessage("0", new MessageEvent("b", "2", "origin"));
+        runTasks();
+
+        assertEquals(1, handler.getErrors().size());
+        assertTrue(handler.getErrors().get(0) instanceof NumberFormatException);
+        assertEquals(asList(new MessageEvent("b", "2", "origin")), handler.getMessageEvents());
+        assertEquals(asList("2"), saved);
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void keepsOrderPerKeyOnThreadPool() throws Exception {
+        final int keys = 8;
+        final int eventsPerKey = 1000;
+        final List<List<String>> received = new ArrayList<List<String>>();
+        for (int i = 0; i < keys; i++) {
+            received.add(new ArrayList<String>());
+        }
+        final CountDownLatch done = new CountDownLatch(keys * eventsPerKey);
+        StubHandler handler = new StubHandler() {
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                List<String> keyReceived = received.get(Integer.parseInt(event));
+                // Only one thread at a time handles a key
+                synchronized (keyReceived) {
+                    keyReceived.add(message.data);
+                }
+                done.countDown();
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            PartitionedDispatcher dispatcher = new PartitionedDispatcher(pool, handler, 4, KeyExtractor.EVENT_NAME);
+            for (int i = 0; i < eventsPerKey; i++) {
+                for (int key = 0; key < keys; key++) {
+                    dispatcher.onMessage(String.valueOf(key), new MessageEvent(String.valueOf(i)));
+                }
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+
+        for (List<String> keyReceived : received) {
+            for (int i = 0; i < eventsPerKey; i++) {
+                assertEquals(String.valueOf(i), keyReceived.get(i));
+            }
+        }
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.RingBufferDispatcher;
+import com.github.eventsource.client.impl.RingBufferDispatcher.WaitStrategy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferDispatcherTest {
+    private static final int MESSAGES = 10000;
+
+    @Test
+    public void deliversMessagesInOrderWhenBusySpinning() throws Exception {
+        assertDeliversInOrder(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void deliversMessagesInOrderWhenYielding() throws Exception {
+        assertDeliversInOrder(WaitStrategy.YIELDING);
+    }
+
+    @Test
+    public void deliversMessagesInOrderWhenBlocking() throws Exception {
+        assertDeliversInOrder(WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void passesHandlerExceptionsToOnError() throws Exception {
+        final CountDownLatch errorCountdown = new CountDownLatch(1);
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                throw new RuntimeException("boom");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errorCountdown.countDown();
+            }
+        }, 16, WaitStrategy.BLOCKING);
+        dispatcher.onMessage("message", new MessageEvent("a"));
+        dispatcher.readComplete();
+        assertTrue("Didn't get error", errorCountdown.await(1000, TimeUnit.MILLISECONDS));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void keepsDeliveringWhenCheckpointStoreFails() throws Exception {
+        final List<String> received = new ArrayList<String>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final CountDownLatch messageCountdown = new CountDownLatch(2);
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                received.add(message.data);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errors.add(t);
+                messageCountdown.countDown();
+            }
+        }, 16, WaitStrategy.BLOCKING);
+        dispatcher.setCheckpointStore(new CheckpointStore() {
+            @Override
+            public String load() {
+                return null;
+            }
+
+            @Override
+            public void save(String lastEventId) {
+                throw new EventSourceException("Disk full");
+            }
+        });
+        dispatcher.onMessage("message", new MessageEvent("a", "1", "origin"));
+        dispatcher.onMessage("message", new MessageEvent("b", "2", "origin"));
+        dispatcher.readComplete();
+        assertTrue("Consumer stopped", messageCountdown.await(1000, TimeUnit.MILLISECONDS));
+        dispatcher.shutdown();
+
+        assertEquals(2, received.size());
+        assertEquals("Disk full", errors.get(1).getMessage());
+    }
+
+    private void assertDeliversInOrder(WaitStrategy waitStrategy) throws InterruptedException {
+        final List<String> received = new ArrayList<String>();
+        final CountDownLatch messageCountdown = new CountDownLatch(MESSAGES);
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new EventSourceHandler() {
+            @Override
+            public void onConnect() {
+            }
+
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                received.add(message.data);
+                messageCountdown.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        }, 64, waitStrategy);
+        for (int i = 0; i < MESSAGES; i++) {
+            dispatcher.onMessage("message", new MessageEvent(Integer.toString(i)));
+            if (i % 100 == 0) {
+                dispatcher.readComplete();
+            }
+        }
+        dispatcher.readComplete();
+        assertTrue("Didn't get all messages", messageCountdown.await(5000, TimeUnit.MILLISECONDS));
+        dispatcher.shutdown();
+        for (int i = 0; i < MESSAGES; i++) {
+            assertEquals(Integer.toString(i), received.get(i));
+        }
+    }
+}
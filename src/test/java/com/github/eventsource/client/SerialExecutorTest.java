@@ -0,0 +1,102 @@
+package com.github.eventsource.client;
+
+import com.github.eventsource.client.impl.SerialExecutor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SerialExecutorTest {
+    private List<Runnable> runs;
+    private List<Integer> ran;
+    private SerialExecutor serial;
+
+    @Before
+    public void setup() {
+        runs = new ArrayList<Runnable>();
+        ran = new ArrayList<Integer>();
+        serial = new SerialExecutor(new Executor() {
+            @Override
+            public void execute(Runnable run) {
+                runs.add(run);
+            }
+        });
+    }
+
+    @Test
+    public void runsTasksInOrderFromOneScheduledRun() throws Exception {
+        serial.execute(task(1));
+        serial.execute(task(2));
+        serial.execute(task(3));
+        assertEquals(1, runs.size());
+
+        runs.remove(0).run();
+
+        assertEquals(asList(1, 2, 3), ran);
+        assertEquals(0, runs.size());
+    }
+
+    @Test
+    public void givesThreadBackAfterManyTasks() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            serial.execute(task(i));
+        }
+
+        runs.remove(0).run();
+        assertEquals(64, ran.size());
+        assertEquals(1, runs.size());
+
+        runs.remove(0).run();
+        assertEquals(100, ran.size());
+        assertEquals(0, runs.size());
+    }
+
+    @Test
+    public void dropsTasksWhenClosed() throws Exception {
+        serial.execute(task(1));
+        serial.close();
+        serial.execute(task(2));
+
+        runs.remove(0).run();
+
+        assertEquals(asList(), ran);
+    }
+
+    @Test
+    public void keepsRunningTasksAfterOneThrows() throws Exception {
+        serial.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("bad task");
+            }
+        });
+        serial.execute(task(2));
+        try {
+            runs.remove(0).run();
+            fail("The task's exception should reach the executor");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, runs.size());
+
+        runs.remove(0).run();
+        serial.execute(task(3));
+        runs.remove(0).run();
+
+        assertEquals(asList(2, 3), ran);
+    }
+
+    private Runnable task(final int n) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(n);
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.eventsource.client.virtual;
+
+import com.github.eventsource.client.EventSource;
+import com.github.eventsource.client.EventSourceClient;
+import com.github.eventsource.client.EventSourceException;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.impl.BlockingDispatcher;
+
+import java.net.URI;
+
+/**
+ * An EventSource whose handler runs on a virtual thread of its own. Events are queued by a
+ * {@link BlockingDispatcher} and taken by the virtual thread, so the handler can block - on a database call, an HTTP
+ * request and so on - without holding up other streams, and without a platform thread per stream. Tens of thousands
+ * of streams can share one {@link EventSourceClient}:
+ *
+ * <pre>
+ * try (VirtualThreadEventSource es = new VirtualThreadEventSource(client, uri, handler)) {
+ *     es.eventSource().setCheckpointStore(store);
+ *     es.connect();
+ *     ...
+ * }
+ * </pre>
+ *
+ * The handler's onConnect, onMessage and onError are all called on the virtual thread, in order. An exception
+ * from onConnect or onMessage is passed to onError, and one from onError is printed, so a failing handler can't stop
+ * the thread and stall the stream. Code that would rather pull events itself can use a BlockingDispatcher directly, from any thread.
+ */
+public class VirtualThreadEventSource implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final BlockingDispatcher events;
+    private final EventSource eventSource;
+    private final EventSourceHandler handler;
+    private final Thread consumer;
+
+    public VirtualThreadEventSource(EventSourceClient client, URI uri, EventSourceHandler handler) {
+        this(client, EventSource.DEFAULT_RECONNECTION_TIME_MILLIS, uri, handler, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param client shares its I/O threads and timer
+     * @param reconnectionTimeMillis delay before a reconnect is made - in the event of a lost connection
+     * @param uri where to connect
+     * @param handler receives events, on the virtual thread
+     * @param capacity reading is paused when this many events are waiting for the handler
+     */
+    public VirtualThreadEventSource(EventSourceClient client, long reconnectionTimeMillis, URI uri, EventSourceHandler handler, int capacity) {
+        this(new BlockingDispatcher(capacity, true), client, reconnectionTimeMillis, uri, handler);
+    }
+
+    private VirtualThreadEventSource(BlockingDispatcher events, EventSourceClient client, long reconnectionTimeMillis, URI uri, EventSourceHandler handler) {
+        this(events, client.eventSource(reconnectionTimeMillis, uri, events), uri, handler);
+    }
+
+    VirtualThreadEventSource(BlockingDispatcher events, EventSource eventSource, URI uri, EventSourceHandler handler) {
+        this.events = events;
+        this.eventSource = eventSource;
+        this.handler = handler;
+        this.consumer = Thread.ofVirtual().name("eventsource " + uri).unstarted(this::consume);
+    }
+
+    /**
+     * @return the EventSource, to configure before connecting. Don't give it a message pool.
+     */
+    public EventSource eventSource() {
+        return eventSource;
+    }
+
+    /**
+     * Starts the virtual thread and connects.
+     *
+     * @return self
+     */
+    public VirtualThreadEventSource connect() {
+        start();
+        eventSource.connect();
+        return this;
+    }
+
+    void start() {
+        consumer.start();
+    }
+
+    /**
+     * Closes the connection and waits for the handler to finish the events already received. Closing from the
+     * handler itself doesn't wait.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        eventSource.close();
+        events.close();
+        if (consumer.isAlive() && Thread.currentThread() != consumer) {
+            consumer.join();
+        }
+    }
+
+    private void consume() {
+        while (true) {
+            BlockingDispatcher.Event event;
+            try {
+                event = events.take();
+            } catch (EventSourceException e) {
+                error(e.getCause());
+                continue;
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (event == null) {
+                return;
+            }
+            try {
+                if (event == BlockingDispatcher.CONNECTED) {
+                    handler.onConnect();
+                } else {
+                    handler.onMessage(event.name, event.message);
+                }
+            } catch (Exception e) {
+                error(e);
+            }
+        }
+    }
+
+    private void error(Throwable error) {
+        try {
+            handler.onError(error);
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+}
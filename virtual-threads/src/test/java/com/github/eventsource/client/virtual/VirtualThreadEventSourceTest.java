@@ -0,0 +1,119 @@
+package com.github.eventsource.client.virtual;
+
+import com.github.eventsource.client.EventSourceClient;
+import com.github.eventsource.client.EventSourceHandler;
+import com.github.eventsource.client.MessageEvent;
+import com.github.eventsource.client.impl.BlockingDispatcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadEventSourceTest {
+    private static final URI URI = java.net.URI.create("http://localhost:59999/es");
+    private final List<String> calls = new CopyOnWriteArrayList<String>();
+    private EventSourceClient client;
+    private BlockingDispatcher events;
+
+    @Before
+    public void setup() {
+        client = new EventSourceClient();
+        events = new BlockingDispatcher(10, true);
+    }
+
+    @After
+    public void teardown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void deliversConnectMessagesAndErrorsInOrderOnVirtualThread() throws Exception {
+        VirtualThreadEventSource es = start(new RecordingHandler());
+        events.onConnect();
+        events.onMessage("message", new MessageEvent("hello"));
+        events.onError(new RuntimeException("lost"));
+        events.onConnect();
+        events.onMessage("message", new MessageEvent("again"));
+        es.close();
+
+        assertEquals(asList("connect virtual", "hello virtual", "lost virtual", "connect virtual", "again virtual"), calls);
+    }
+
+    @Test
+    public void keepsConsumingWhenHandlerThrows() throws Exception {
+        VirtualThreadEventSource es = start(new RecordingHandler() {
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                super.onMessage(event, message);
+                throw new IllegalStateException("bad " + message.data);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                super.onError(t);
+                throw new IllegalStateException("worse");
+            }
+        });
+        events.onMessage("message", new MessageEvent("one"));
+        events.onMessage("message", new MessageEvent("two"));
+        es.close();
+
+        assertEquals(asList("one virtual", "bad one virtual", "two virtual", "bad two virtual"), calls);
+    }
+
+    @Test
+    public void closeWaitsForQueuedEvents() throws Exception {
+        VirtualThreadEventSource es = start(new RecordingHandler() {
+            @Override
+            public void onMessage(String event, MessageEvent message) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onMessage(event, message);
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            events.onMessage("message", new MessageEvent(String.valueOf(i)));
+        }
+        es.close();
+
+        assertEquals(5, calls.size());
+        assertTrue(calls.get(4).startsWith("4"));
+    }
+
+    private VirtualThreadEventSource start(EventSourceHandler handler) {
+        VirtualThreadEventSource es = new VirtualThreadEventSource(events, client.eventSource(1000, URI, events), URI, handler);
+        es.start();
+        return es;
+    }
+
+    private class RecordingHandler implements EventSourceHandler {
+        @Override
+        public void onConnect() {
+            calls.add("connect" + thread());
+        }
+
+        @Override
+        public void onMessage(String event, MessageEvent message) {
+            calls.add(message.data + thread());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            calls.add(t.getMessage() + thread());
+        }
+
+        private String thread() {
+            return Thread.currentThread().isVirtual() ? " virtual" : " platform";
+        }
+    }
+}